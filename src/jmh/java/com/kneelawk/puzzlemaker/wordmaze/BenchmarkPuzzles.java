@@ -0,0 +1,87 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+public class BenchmarkPuzzles {
+	public static final long SEED = 0x5EED;
+	public static final int BOX_SIZE = 20;
+	public static final int START_POSITION = 0;
+	public static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final int MAX_SEED_TRIES = 100;
+
+	public static int endPosition(int size) {
+		// the bottom right corner, so the path has to cross the whole maze
+		return 2 * size;
+	}
+
+	public static WordMaze newMaze(long seed, int size) {
+		return new WordMaze(new MazeRandom(seed), size, size, BOX_SIZE, BOX_SIZE, START_POSITION, endPosition(size));
+	}
+
+	public static void resetMaze(WordMaze maze, long seed, int size) {
+		maze.reset(new MazeRandom(seed), size, size, BOX_SIZE, BOX_SIZE, START_POSITION, endPosition(size));
+	}
+
+	public static List<String> words(int length) {
+		// words of 3 to 7 letters, with a short remainder folded into the last word instead of standing alone
+		MazeRandom random = new MazeRandom(SEED);
+		List<String> words = Lists.newArrayList();
+		int remaining = length;
+		while (remaining > 0) {
+			int wordLength = Math.min(remaining, 3 + random.nextInt(5));
+			if (remaining - wordLength < 3) {
+				wordLength = remaining;
+			}
+			StringBuilder word = new StringBuilder();
+			for (int i = 0; i < wordLength; i++) {
+				word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			words.add(word.toString());
+			remaining -= wordLength;
+		}
+		return ImmutableList.copyOf(words);
+	}
+
+	public static List<List<String>> alternateAnswers(List<String> words) {
+		// two look-alike alternates per word, each with one letter changed
+		MazeRandom random = new MazeRandom(SEED);
+		List<List<String>> alternates = Lists.newArrayList();
+		for (String word : words) {
+			List<String> wordAlternates = Lists.newArrayList();
+			for (int i = 0; i < 2; i++) {
+				char[] letters = word.toCharArray();
+				letters[random.nextInt(letters.length)] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+				wordAlternates.add(new String(letters));
+			}
+			alternates.add(wordAlternates);
+		}
+		return alternates;
+	}
+
+	public static List<String> questions(int count) {
+		List<String> questions = Lists.newArrayList();
+		for (int i = 0; i < count; i++) {
+			questions.add("Which word is hidden at step " + i + " of this benchmark maze, reading along the path?");
+		}
+		return questions;
+	}
+
+	public static long solvableSeed(int size, int barrierRemovals, List<String> words) {
+		// the benchmarks need a maze that can be solved, so seeds are tried in a fixed order until one works
+		for (long seed = SEED; seed < SEED + MAX_SEED_TRIES; seed++) {
+			WordMaze maze = newMaze(seed, size);
+			maze.generateMaze(barrierRemovals);
+			try {
+				maze.pathWordString(words);
+				return seed;
+			} catch (UnsolvableException e) {
+				// try the next seed
+			}
+		}
+		throw new IllegalStateException("No solvable " + size + "x" + size + " maze with " + barrierRemovals +
+				" barrier removals found for a word string of length " + words.stream().mapToInt(String::length).sum());
+	}
+}
@@ -0,0 +1,30 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GenerationBenchmark {
+	@Param({"8", "16", "32"})
+	public int size;
+
+	@Param({"4", "16"})
+	public int barrierRemovals;
+
+	@Benchmark
+	public WordMaze generateMaze() {
+		// the same seed every time, so every invocation carves the same maze
+		WordMaze maze = BenchmarkPuzzles.newMaze(BenchmarkPuzzles.SEED, size);
+		maze.generateMaze(barrierRemovals);
+		return maze;
+	}
+}
@@ -0,0 +1,81 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+	@Param({"8", "16"})
+	public int size;
+
+	@Param({"4"})
+	public int barrierRemovals;
+
+	@Param({"3"})
+	public int lengthPerSide;
+
+	WordMaze maze;
+	WordMazeSnapshot snapshot;
+	List<String> questions;
+	PuzzleWriter writer;
+	BufferedImage image;
+	Graphics2D graphics2D;
+
+	@Setup(Level.Trial)
+	public void setup() throws UnsolvableException, IOException {
+		List<String> words = BenchmarkPuzzles.words(size * lengthPerSide);
+		long seed = BenchmarkPuzzles.solvableSeed(size, barrierRemovals, words);
+		maze = BenchmarkPuzzles.newMaze(seed, size);
+		maze.generateMaze(barrierRemovals);
+		maze.addAlternateAnswers(maze.pathWordString(words), BenchmarkPuzzles.alternateAnswers(words));
+		maze.fillRandomCharacters(BenchmarkPuzzles.ALPHABET);
+		snapshot = maze.snapshot();
+		questions = BenchmarkPuzzles.questions(words.size());
+
+		// rendering a pdf doesn't touch the executor, only the png writer does
+		writer = new PuzzleWriter(null, null);
+		MazeFonts.warmUp();
+
+		image = new BufferedImage(size * BenchmarkPuzzles.BOX_SIZE + 1, size * BenchmarkPuzzles.BOX_SIZE + 1,
+				BufferedImage.TYPE_BYTE_GRAY);
+		graphics2D = image.createGraphics();
+		graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics2D.setFont(MazeFonts.getGraphicsFont().deriveFont(BenchmarkPuzzles.BOX_SIZE - 6f));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		graphics2D.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage draw() {
+		graphics2D.setColor(Color.WHITE);
+		graphics2D.fillRect(0, 0, image.getWidth(), image.getHeight());
+		graphics2D.setColor(Color.BLACK);
+		maze.draw(graphics2D);
+		return image;
+	}
+
+	@Benchmark
+	public void writePDF() throws IOException {
+		writer.writePDF(snapshot, questions, new NullOutputStream());
+	}
+}
@@ -0,0 +1,85 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolveBenchmark {
+	@Param({"8", "16"})
+	public int size;
+
+	@Param({"4", "16"})
+	public int barrierRemovals;
+
+	@Param({"3", "4"})
+	public int lengthPerSide;
+
+	List<String> words;
+	List<List<String>> alternateAnswers;
+	long seed;
+	WordMazeSnapshot carved;
+	WordMazeSnapshot solved;
+	WordMazeSnapshot withAlternates;
+	List<List<Vec2i>> alternateLocations;
+	WordMaze maze;
+
+	@Setup(Level.Trial)
+	public void setup() throws UnsolvableException {
+		words = BenchmarkPuzzles.words(size * lengthPerSide);
+		alternateAnswers = BenchmarkPuzzles.alternateAnswers(words);
+		seed = BenchmarkPuzzles.solvableSeed(size, barrierRemovals, words);
+
+		// each step's starting point is kept so the steps can be measured one at a time
+		maze = BenchmarkPuzzles.newMaze(seed, size);
+		maze.generateMaze(barrierRemovals);
+		carved = maze.snapshot();
+		alternateLocations = maze.pathWordString(words);
+		solved = maze.snapshot();
+		maze.addAlternateAnswers(alternateLocations, alternateAnswers);
+		withAlternates = maze.snapshot();
+	}
+
+	@Benchmark
+	public WordMaze restore() {
+		// the baseline for the steps below, which each restore their starting point before measuring
+		return restore(carved);
+	}
+
+	@Benchmark
+	public List<List<Vec2i>> pathWordString() throws UnsolvableException {
+		return restore(carved).pathWordString(words);
+	}
+
+	@Benchmark
+	public WordMaze addAlternateAnswers() {
+		WordMaze maze = restore(solved);
+		maze.addAlternateAnswers(alternateLocations, alternateAnswers);
+		return maze;
+	}
+
+	@Benchmark
+	public WordMaze fillRandomCharacters() {
+		WordMaze maze = restore(withAlternates);
+		maze.fillRandomCharacters(BenchmarkPuzzles.ALPHABET);
+		return maze;
+	}
+
+	private WordMaze restore(WordMazeSnapshot snapshot) {
+		// the random streams are reset too, so every invocation repeats the same steps as the setup
+		BenchmarkPuzzles.resetMaze(maze, seed, size);
+		maze.restore(snapshot);
+		return maze;
+	}
+}
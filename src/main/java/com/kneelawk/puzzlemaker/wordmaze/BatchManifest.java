@@ -0,0 +1,89 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BatchManifest {
+	public static List<String[]> read(Path manifest) throws IOException {
+		List<String[]> jobs = Lists.newArrayList();
+		try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				try {
+					jobs.add(tokenize(trimmed));
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Manifest line " + lineNumber + ": " + e.getMessage(), e);
+				}
+			}
+		}
+		return jobs;
+	}
+
+	public static String join(String[] tokens) {
+		// the inverse of tokenize, every token is quoted so spaces and quotes survive the round trip
+		StringBuilder line = new StringBuilder();
+		for (String token : tokens) {
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append('"');
+			for (char c : token.toCharArray()) {
+				if (c == '"' || c == '\\') {
+					line.append('\\');
+				}
+				line.append(c);
+			}
+			line.append('"');
+		}
+		return line.toString();
+	}
+
+	public static String[] tokenize(String line) {
+		List<String> tokens = Lists.newArrayList();
+		StringBuilder token = new StringBuilder();
+		boolean inToken = false, quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					quoted = false;
+				} else if (c == '\\' && i + 1 < line.length()) {
+					token.append(line.charAt(++i));
+				} else {
+					token.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+				inToken = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					tokens.add(token.toString());
+					token.setLength(0);
+					inToken = false;
+				}
+			} else {
+				token.append(c);
+				inToken = true;
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quote");
+		}
+		if (inToken) {
+			tokens.add(token.toString());
+		}
+		return tokens.toArray(new String[0]);
+	}
+}
@@ -2,12 +2,34 @@ package com.kneelawk.puzzlemaker.wordmaze;
 
 public class CaseUtils {
 	public static String toUpperCase(String input) {
-		StringBuilder sb = new StringBuilder();
+		return toUpperCase(input, 0, input.length());
+	}
 
-		for (char c : input.toCharArray()) {
-			sb.append(Character.toUpperCase(c));
+	public static String toUpperCase(String input, int start, int end) {
+		// character-wise upper-casing keeps the length the same and doesn't depend on the default locale
+		int i = start;
+		while (i < end && Character.toUpperCase(input.charAt(i)) == input.charAt(i)) {
+			i++;
+		}
+		if (i == end) {
+			return start == 0 && end == input.length() ? input : input.substring(start, end);
 		}
 
-		return sb.toString();
+		char[] chars = new char[end - start];
+		input.getChars(start, i, chars, 0);
+		for (; i < end; i++) {
+			chars[i - start] = Character.toUpperCase(input.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	public static String trimToUpperCase(String input, int start, int end) {
+		while (start < end && input.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && input.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return toUpperCase(input, start, end);
 	}
 }
@@ -0,0 +1,47 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Maps;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class GlyphWidthCache {
+	private static final int DIRECT_CHARS = 256;
+
+	private final PDFont font;
+	private final float[] directWidths = new float[DIRECT_CHARS];
+	private final Map<Character, Float> widths = Maps.newHashMap();
+
+	public GlyphWidthCache(PDFont font) {
+		this.font = font;
+		Arrays.fill(directWidths, Float.NaN);
+	}
+
+	public PDFont getFont() {
+		return font;
+	}
+
+	public float getGlyphSpaceWidth(char c) throws IOException {
+		if (c < DIRECT_CHARS) {
+			float width = directWidths[c];
+			if (Float.isNaN(width)) {
+				width = font.getStringWidth(String.valueOf(c));
+				directWidths[c] = width;
+			}
+			return width;
+		}
+
+		Float width = widths.get(c);
+		if (width == null) {
+			width = font.getStringWidth(String.valueOf(c));
+			widths.put(c, width);
+		}
+		return width;
+	}
+
+	public float getWidth(char c, float fontSize) throws IOException {
+		return getGlyphSpaceWidth(c) / 1000f * fontSize;
+	}
+}
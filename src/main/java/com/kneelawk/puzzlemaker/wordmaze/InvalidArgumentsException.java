@@ -0,0 +1,39 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+public class InvalidArgumentsException extends IllegalArgumentException {
+	private static final long serialVersionUID = 1L;
+
+	private final List<String> errors;
+	private final boolean helpRequested;
+
+	public InvalidArgumentsException(String message) {
+		this(ImmutableList.of(message), false);
+	}
+
+	public InvalidArgumentsException(List<String> errors) {
+		this(errors, false);
+	}
+
+	private InvalidArgumentsException(List<String> errors, boolean helpRequested) {
+		super(errors.isEmpty() ? "Help requested" : errors.get(0));
+		this.errors = ImmutableList.copyOf(errors);
+		this.helpRequested = helpRequested;
+	}
+
+	public static InvalidArgumentsException helpRequested() {
+		// --help stops parsing like an error would, but whoever asked for it shouldn't be told it failed
+		return new InvalidArgumentsException(ImmutableList.of(), true);
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public boolean isHelpRequested() {
+		return helpRequested;
+	}
+}
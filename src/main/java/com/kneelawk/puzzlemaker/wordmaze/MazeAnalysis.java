@@ -0,0 +1,286 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+public class MazeAnalysis {
+	private static final int UP = 0, RIGHT = 1, DOWN = 2, LEFT = 3;
+
+	private final int width;
+	private final int height;
+	private final int passages;
+	private final int components;
+	private final int deadEnds;
+	private final int junctions;
+	private final float branchingFactor;
+	private final SortedMap<Integer, Integer> corridorLengths;
+	private final int solutionLength;
+	private final int shortestLength;
+	private final int decisionPoints;
+	private final int revisitedCells;
+
+	private MazeAnalysis(int width, int height, int passages, int components, int deadEnds, int junctions,
+						 float branchingFactor, SortedMap<Integer, Integer> corridorLengths, int solutionLength,
+						 int shortestLength, int decisionPoints, int revisitedCells) {
+		this.width = width;
+		this.height = height;
+		this.passages = passages;
+		this.components = components;
+		this.deadEnds = deadEnds;
+		this.junctions = junctions;
+		this.branchingFactor = branchingFactor;
+		this.corridorLengths = corridorLengths;
+		this.solutionLength = solutionLength;
+		this.shortestLength = shortestLength;
+		this.decisionPoints = decisionPoints;
+		this.revisitedCells = revisitedCells;
+	}
+
+	public static MazeAnalysis analyze(WordMazeSnapshot maze, List<Vec2i> solutionPath) {
+		int width = maze.getWidth(), height = maze.getHeight(), cellCount = width * height;
+
+		// every cell is an int id and its open sides are a 4 bit mask, so each pass below is linear in the cells
+		byte[] open = new byte[cellCount];
+		int[] parent = new int[cellCount];
+		int[] size = new int[cellCount];
+		for (int i = 0; i < cellCount; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+		int passages = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				if (x < width - 1 && !maze.getVertical(x + 1, y)) {
+					open[cell] |= 1 << RIGHT;
+					open[cell + 1] |= 1 << LEFT;
+					union(parent, size, cell, cell + 1);
+					passages++;
+				}
+				if (y < height - 1 && !maze.getHorizontal(x, y + 1)) {
+					open[cell] |= 1 << DOWN;
+					open[cell + width] |= 1 << UP;
+					union(parent, size, cell, cell + width);
+					passages++;
+				}
+			}
+		}
+
+		int components = 0, deadEnds = 0, junctions = 0, junctionExits = 0;
+		for (int i = 0; i < cellCount; i++) {
+			if (parent[i] == i) {
+				components++;
+			}
+			int degree = Integer.bitCount(open[i]);
+			if (degree == 1) {
+				deadEnds++;
+			} else if (degree >= 3) {
+				junctions++;
+				junctionExits += degree - 1;
+			}
+		}
+
+		SortedMap<Integer, Integer> corridorLengths = corridorLengths(open, width);
+
+		int solutionLength = solutionPath.size(), shortestLength = 0, decisionPoints = 0, revisitedCells = 0;
+		if (!solutionPath.isEmpty()) {
+			Vec2i start = solutionPath.get(0), end = solutionPath.get(solutionPath.size() - 1);
+			int[] distances = distances(open, width, start.y * width + start.x);
+			shortestLength = distances[end.y * width + end.x] + 1;
+
+			boolean[] visited = new boolean[cellCount];
+			for (int i = 0; i < solutionPath.size(); i++) {
+				Vec2i loc = solutionPath.get(i);
+				int cell = loc.y * width + loc.x;
+				if (visited[cell]) {
+					revisitedCells++;
+				}
+				visited[cell] = true;
+				if (i < solutionPath.size() - 1 && Integer.bitCount(open[cell]) >= 3) {
+					decisionPoints++;
+				}
+			}
+		}
+
+		return new MazeAnalysis(width, height, passages, components, deadEnds, junctions,
+				junctions == 0 ? 0 : (float) junctionExits / junctions, corridorLengths, solutionLength,
+				shortestLength, decisionPoints, revisitedCells);
+	}
+
+	private static int find(int[] parent, int cell) {
+		while (parent[cell] != cell) {
+			parent[cell] = parent[parent[cell]];
+			cell = parent[cell];
+		}
+		return cell;
+	}
+
+	private static void union(int[] parent, int[] size, int a, int b) {
+		int rootA = find(parent, a), rootB = find(parent, b);
+		if (rootA == rootB) {
+			return;
+		}
+		if (size[rootA] < size[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+	}
+
+	private static int neighbor(int cell, int direction, int width) {
+		switch (direction) {
+			case UP:
+				return cell - width;
+			case RIGHT:
+				return cell + 1;
+			case DOWN:
+				return cell + width;
+			default:
+				return cell - 1;
+		}
+	}
+
+	private static SortedMap<Integer, Integer> corridorLengths(byte[] open, int width) {
+		// a corridor runs between two cells that aren't plain two-sided passages, each side is walked only once
+		SortedMap<Integer, Integer> lengths = Maps.newTreeMap();
+		byte[] walked = new byte[open.length];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int cell = 0; cell < open.length; cell++) {
+				// the second pass picks up loops made only of two-sided cells, which have no end to start from
+				if (pass == 0 && Integer.bitCount(open[cell]) == 2) {
+					continue;
+				}
+				for (int direction = 0; direction < 4; direction++) {
+					if ((open[cell] & ~walked[cell] & 1 << direction) == 0) {
+						continue;
+					}
+					int length = 0, current = cell, heading = direction;
+					while (true) {
+						int next = neighbor(current, heading, width);
+						walked[current] |= 1 << heading;
+						walked[next] |= 1 << (heading + 2 & 3);
+						length++;
+						if (next == cell || Integer.bitCount(open[next]) != 2) {
+							break;
+						}
+						heading = Integer.numberOfTrailingZeros(open[next] & ~(1 << (heading + 2 & 3)));
+						current = next;
+					}
+					lengths.merge(length, 1, Integer::sum);
+				}
+			}
+		}
+		return lengths;
+	}
+
+	private static int[] distances(byte[] open, int width, int start) {
+		int[] distances = new int[open.length];
+		int[] queue = new int[open.length];
+		Arrays.fill(distances, -1);
+		distances[start] = 0;
+		queue[0] = start;
+		int head = 0, tail = 1;
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int direction = 0; direction < 4; direction++) {
+				if ((open[cell] & 1 << direction) != 0) {
+					int next = neighbor(cell, direction, width);
+					if (distances[next] < 0) {
+						distances[next] = distances[cell] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		return distances;
+	}
+
+	public int getCycles() {
+		// every passage beyond a spanning forest closes exactly one independent cycle
+		return passages - width * height + components;
+	}
+
+	public int getDeadEnds() {
+		return deadEnds;
+	}
+
+	public int getJunctions() {
+		return junctions;
+	}
+
+	public float getBranchingFactor() {
+		return branchingFactor;
+	}
+
+	public SortedMap<Integer, Integer> getCorridorLengths() {
+		return corridorLengths;
+	}
+
+	public int getSolutionLength() {
+		return solutionLength;
+	}
+
+	public int getShortestLength() {
+		return shortestLength;
+	}
+
+	public int getDetour() {
+		return solutionLength - shortestLength;
+	}
+
+	public int getDecisionPoints() {
+		return decisionPoints;
+	}
+
+	public int getRevisitedCells() {
+		return revisitedCells;
+	}
+
+	public String toJSON() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"width\": ").append(width).append(",\n");
+		json.append("  \"height\": ").append(height).append(",\n");
+		json.append("  \"passages\": ").append(passages).append(",\n");
+		json.append("  \"components\": ").append(components).append(",\n");
+		json.append("  \"cycles\": ").append(getCycles()).append(",\n");
+		json.append("  \"deadEnds\": ").append(deadEnds).append(",\n");
+		json.append("  \"junctions\": ").append(junctions).append(",\n");
+		json.append("  \"branchingFactor\": ").append(branchingFactor).append(",\n");
+		json.append("  \"corridorLengths\": {");
+		boolean first = true;
+		for (Map.Entry<Integer, Integer> entry : corridorLengths.entrySet()) {
+			json.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+			first = false;
+		}
+		json.append("},\n");
+		json.append("  \"solution\": {\n");
+		json.append("    \"length\": ").append(solutionLength).append(",\n");
+		json.append("    \"shortestLength\": ").append(shortestLength).append(",\n");
+		json.append("    \"detour\": ").append(getDetour()).append(",\n");
+		json.append("    \"detourRatio\": ")
+				.append(shortestLength == 0 ? 0 : (float) solutionLength / shortestLength).append(",\n");
+		json.append("    \"decisionPoints\": ").append(decisionPoints).append(",\n");
+		json.append("    \"revisitedCells\": ").append(revisitedCells).append("\n");
+		json.append("  }\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+	public void writeJSON(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(toJSON());
+		}
+	}
+}
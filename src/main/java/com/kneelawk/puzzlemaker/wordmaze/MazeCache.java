@@ -0,0 +1,209 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class MazeCache {
+	private static final int FORMAT_VERSION = 2;
+	private static final String MAZE_SUFFIX = ".wmaze";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Path directory;
+	private final long maxSize;
+	private final boolean storingPDFs;
+
+	public MazeCache(Path directory, long maxSize, boolean storingPDFs) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.storingPDFs = storingPDFs;
+		Files.createDirectories(directory);
+	}
+
+	public boolean isStoringPDFs() {
+		return storingPDFs;
+	}
+
+	public static String key(WordMazeGeneratorArguments arguments, long seed, Iterable<String> questions,
+							 QuestionBank questionBank) {
+		// everything that changes the maze or its pdfs goes into the key, output locations don't
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FORMAT_VERSION);
+		hasher.putLong(seed);
+		hasher.putInt(arguments.getMazeWidth()).putInt(arguments.getMazeHeight());
+		hasher.putInt(arguments.getBoxWidth()).putInt(arguments.getBoxHeight());
+		hasher.putInt(arguments.getStartPosition()).putInt(arguments.getEndPosition());
+		putString(hasher, arguments.getAlphabet());
+		hasher.putInt(arguments.getBarrierRemovals());
+		hasher.putBoolean(arguments.isPoster());
+		hasher.putFloat(arguments.getPosterMargin()).putFloat(arguments.getPosterOverlap());
+
+		// the csv is hashed by its parsed and normalized contents, so re-saving it doesn't miss the cache
+		Iterator<String> iterator = questions.iterator();
+		try {
+			while (iterator.hasNext()) {
+				putString(hasher, iterator.next());
+			}
+		} finally {
+			QuestionCSVReader.close(iterator);
+		}
+		hasher.putInt(-1);
+		for (String answer : questionBank.getAnswers()) {
+			putString(hasher, answer);
+		}
+		hasher.putInt(-1);
+		for (List<String> alternates : questionBank.getAlternateAnswers()) {
+			hasher.putInt(alternates.size());
+			for (String alternate : alternates) {
+				putString(hasher, alternate);
+			}
+		}
+		return hasher.hash().toString();
+	}
+
+	private static void putString(Hasher hasher, String string) {
+		hasher.putInt(string.length());
+		hasher.putString(string, StandardCharsets.UTF_8);
+	}
+
+	public MazeFile load(String key) {
+		Path mazeFile = directory.resolve(key + MAZE_SUFFIX);
+		try {
+			MazeFile entry = MazeFile.read(mazeFile);
+
+			// the modification time doubles as the last access time for eviction
+			Files.setLastModifiedTime(mazeFile, FileTime.fromMillis(System.currentTimeMillis()));
+			return entry;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			System.err.println("Ignoring unreadable cache entry: " + mazeFile);
+			return null;
+		}
+	}
+
+	public void storeMaze(String key, MazeFile maze) {
+		try {
+			Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+			maze.write(temp);
+			commit(temp, directory.resolve(key + MAZE_SUFFIX));
+		} catch (IOException e) {
+			System.err.println("Unable to store cache entry: " + key + " (" + e.getMessage() + ")");
+		}
+	}
+
+	public boolean copyPDF(String key, Document document, Path output) throws IOException {
+		try {
+			Files.copy(directory.resolve(key + document.suffix), output, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+	}
+
+	public boolean copyPDF(String key, Document document, OutputStream output) throws IOException {
+		try {
+			Files.copy(directory.resolve(key + document.suffix), output);
+			return true;
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+	}
+
+	public void storePDF(String key, Document document, Path pdf) {
+		try {
+			Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+			Files.copy(pdf, temp, StandardCopyOption.REPLACE_EXISTING);
+			commit(temp, directory.resolve(key + document.suffix));
+		} catch (IOException e) {
+			System.err.println("Unable to store cached pdf: " + key + " (" + e.getMessage() + ")");
+		}
+	}
+
+	private void commit(Path temp, Path target) throws IOException {
+		// entries only ever appear whole, so other processes sharing the directory never read a partial file
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		evict();
+	}
+
+	private synchronized void evict() throws IOException {
+		// group the files by key, an entry's age is that of its most recently touched file
+		Map<String, EntryFiles> entries = Maps.newHashMap();
+		long totalSize = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TEMP_SUFFIX) || name.indexOf('.') < 0) {
+					continue;
+				}
+				long size, modified;
+				try {
+					size = Files.size(file);
+					modified = Files.getLastModifiedTime(file).toMillis();
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				EntryFiles entry = entries.computeIfAbsent(name.substring(0, name.indexOf('.')), k -> new EntryFiles());
+				entry.files.add(file);
+				entry.size += size;
+				entry.lastAccess = Math.max(entry.lastAccess, modified);
+				totalSize += size;
+			}
+		}
+
+		if (totalSize <= maxSize) {
+			return;
+		}
+
+		List<EntryFiles> oldestFirst = Lists.newArrayList(entries.values());
+		oldestFirst.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+		for (EntryFiles entry : oldestFirst) {
+			if (totalSize <= maxSize) {
+				break;
+			}
+			for (Path file : entry.files) {
+				Files.deleteIfExists(file);
+			}
+			totalSize -= entry.size;
+		}
+	}
+
+	public enum Document {
+		PUZZLE(".puzzle.pdf"),
+		ANSWER(".answer.pdf");
+
+		private final String suffix;
+
+		Document(String suffix) {
+			this.suffix = suffix;
+		}
+	}
+
+	private static class EntryFiles {
+		final List<Path> files = Lists.newArrayList();
+		long size;
+		long lastAccess;
+	}
+}
@@ -0,0 +1,281 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class MazeFile {
+	private static final byte[] MAGIC = {'W', 'M', 'Z', 'F'};
+	private static final int VERSION = 1;
+
+	private final WordMazeSnapshot puzzle;
+	private final List<Vec2i> solutionPath;
+	private final int startPosition;
+	private final int endPosition;
+	private final List<String> questions;
+
+	public MazeFile(WordMazeSnapshot puzzle, List<Vec2i> solutionPath, int startPosition, int endPosition,
+					List<String> questions) {
+		this.puzzle = puzzle;
+		this.solutionPath = ImmutableList.copyOf(solutionPath);
+		this.startPosition = startPosition;
+		this.endPosition = endPosition;
+		this.questions = ImmutableList.copyOf(questions);
+	}
+
+	public WordMazeSnapshot getPuzzle() {
+		return puzzle;
+	}
+
+	public WordMazeSnapshot getAnswer() {
+		// alternates and fill letters never overwrite the path, so the answer is the puzzle with only the path left
+		return puzzle.withLettersOnlyAt(solutionPath);
+	}
+
+	public List<Vec2i> getSolutionPath() {
+		return solutionPath;
+	}
+
+	public int getStartPosition() {
+		return startPosition;
+	}
+
+	public int getEndPosition() {
+		return endPosition;
+	}
+
+	public List<String> getQuestions() {
+		return questions;
+	}
+
+	public void write(Path file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+			write(out);
+		}
+	}
+
+	public void write(OutputStream out) throws IOException {
+		int width = puzzle.getWidth(), height = puzzle.getHeight();
+		out.write(MAGIC);
+		writeVarInt(out, VERSION);
+		writeVarInt(out, width);
+		writeVarInt(out, height);
+		writeVarInt(out, puzzle.getBoxWidth());
+		writeVarInt(out, puzzle.getBoxHeight());
+		writeVarInt(out, startPosition);
+		writeVarInt(out, endPosition);
+
+		// letters are stored as one byte indices into a table of the characters actually used
+		Map<Character, Integer> codes = Maps.newLinkedHashMap();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				char c = puzzle.getCharacter(x, y);
+				if (c != 0 && !codes.containsKey(c)) {
+					codes.put(c, codes.size() + 1);
+				}
+			}
+		}
+		if (codes.size() > 255) {
+			throw new IOException("Maze uses more than 255 different letters");
+		}
+		writeVarInt(out, codes.size());
+		for (char c : codes.keySet()) {
+			writeVarInt(out, c);
+		}
+
+		writeVarInt(out, puzzle.getExtraLetter());
+		writeVarInt(out, zigZag(puzzle.getExtraLetterLocation().x));
+		writeVarInt(out, zigZag(puzzle.getExtraLetterLocation().y));
+
+		// walls are packed eight to a byte, verticals first
+		int bits = 0, bitCount = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x <= width; x++) {
+				bits |= (puzzle.getVertical(x, y) ? 1 : 0) << bitCount;
+				if (++bitCount == 8) {
+					out.write(bits);
+					bits = 0;
+					bitCount = 0;
+				}
+			}
+		}
+		for (int y = 0; y <= height; y++) {
+			for (int x = 0; x < width; x++) {
+				bits |= (puzzle.getHorizontal(x, y) ? 1 : 0) << bitCount;
+				if (++bitCount == 8) {
+					out.write(bits);
+					bits = 0;
+					bitCount = 0;
+				}
+			}
+		}
+		if (bitCount > 0) {
+			out.write(bits);
+		}
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				char c = puzzle.getCharacter(x, y);
+				out.write(c == 0 ? 0 : codes.get(c));
+			}
+		}
+
+		// each path step is a cell index delta, which is one byte for every step but vertical ones on wide mazes
+		writeVarInt(out, solutionPath.size());
+		int lastIndex = 0;
+		for (Vec2i loc : solutionPath) {
+			int index = loc.y * width + loc.x;
+			writeVarInt(out, zigZag(index - lastIndex));
+			lastIndex = index;
+		}
+
+		writeVarInt(out, questions.size());
+		for (String question : questions) {
+			byte[] bytes = question.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	public static MazeFile read(Path file) throws IOException {
+		// maze files are small, and a heap copy doesn't hold the file open the way a mapping does until it's collected
+		return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+	}
+
+	public static MazeFile read(ByteBuffer buffer) throws IOException {
+		try {
+			for (byte b : MAGIC) {
+				if (buffer.get() != b) {
+					throw new IOException("Not a maze file");
+				}
+			}
+			int version = readVarInt(buffer);
+			if (version != VERSION) {
+				throw new IOException("Unsupported maze file version: " + version);
+			}
+
+			int width = readVarInt(buffer), height = readVarInt(buffer);
+			int boxWidth = readVarInt(buffer), boxHeight = readVarInt(buffer);
+			int startPosition = readVarInt(buffer), endPosition = readVarInt(buffer);
+			if (width < 1 || height < 1) {
+				throw new IOException("Invalid maze size: " + width + "x" + height);
+			}
+			// every cell has a letter byte, so a size the rest of the file can't hold is checked before allocating
+			if ((long) width * height > buffer.remaining()) {
+				throw new IOException("Truncated or corrupt maze file");
+			}
+
+			char[] table = new char[readLength(buffer) + 1];
+			for (int i = 1; i < table.length; i++) {
+				table[i] = (char) readVarInt(buffer);
+			}
+
+			char extraLetter = (char) readVarInt(buffer);
+			Vec2i extraLetterLocation =
+					new Vec2i(unZigZag(readVarInt(buffer)), unZigZag(readVarInt(buffer)));
+
+			boolean[][] verticals = new boolean[height][width + 1];
+			boolean[][] horizontals = new boolean[height + 1][width];
+			int bits = 0, bitCount = 8;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x <= width; x++) {
+					if (bitCount == 8) {
+						bits = buffer.get();
+						bitCount = 0;
+					}
+					verticals[y][x] = (bits >> bitCount++ & 1) != 0;
+				}
+			}
+			for (int y = 0; y <= height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (bitCount == 8) {
+						bits = buffer.get();
+						bitCount = 0;
+					}
+					horizontals[y][x] = (bits >> bitCount++ & 1) != 0;
+				}
+			}
+
+			char[][] letters = new char[height][width];
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					letters[y][x] = table[buffer.get() & 0xFF];
+				}
+			}
+
+			int pathSize = readLength(buffer);
+			List<Vec2i> solutionPath = Lists.newArrayListWithCapacity(pathSize);
+			int index = 0;
+			for (int i = 0; i < pathSize; i++) {
+				index += unZigZag(readVarInt(buffer));
+				if (index < 0 || index >= width * height) {
+					throw new IOException("Solution path leaves the maze");
+				}
+				solutionPath.add(new Vec2i(index % width, index / width));
+			}
+
+			int questionCount = readLength(buffer);
+			List<String> questions = Lists.newArrayListWithCapacity(questionCount);
+			for (int i = 0; i < questionCount; i++) {
+				byte[] bytes = new byte[readLength(buffer)];
+				buffer.get(bytes);
+				questions.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+
+			WordMazeSnapshot puzzle =
+					new WordMazeSnapshot(width, height, boxWidth, boxHeight, verticals, horizontals, letters,
+							extraLetter, extraLetterLocation);
+			return new MazeFile(puzzle, solutionPath, startPosition, endPosition, questions);
+		} catch (BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException("Truncated or corrupt maze file", e);
+		}
+	}
+
+	private static int readLength(ByteBuffer buffer) throws IOException {
+		// everything counted takes at least a byte, so a count past the end of the file is corrupt
+		int length = readVarInt(buffer);
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IOException("Truncated or corrupt maze file");
+		}
+		return length;
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarInt(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(ByteBuffer buffer) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in maze file");
+	}
+}
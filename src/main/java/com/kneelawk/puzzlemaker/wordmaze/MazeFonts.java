@@ -0,0 +1,52 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class MazeFonts {
+	private static final String FONT_RESOURCE = "NotoMono-Regular.ttf";
+
+	private static byte[] fontData;
+	private static Font graphicsFont;
+
+	private static synchronized byte[] getFontData() throws IOException {
+		// the font program is read once and shared, each document still parses its own copy
+		if (fontData == null) {
+			try (InputStream is = MazeFonts.class.getResourceAsStream(FONT_RESOURCE)) {
+				fontData = IOUtils.toByteArray(is);
+			}
+		}
+		return fontData;
+	}
+
+	public static PDFont loadTextFont(PDDocument document) throws IOException {
+		// only the glyphs actually used get embedded when the document is saved
+		return PDType0Font.load(document, new ByteArrayInputStream(getFontData()), true);
+	}
+
+	public static void warmUp() throws IOException {
+		// loading into a throwaway document pulls in the font parsing classes ahead of the first real puzzle
+		getGraphicsFont();
+		try (PDDocument document = new PDDocument()) {
+			loadTextFont(document).getStringWidth("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+		}
+	}
+
+	public static synchronized Font getGraphicsFont() throws IOException {
+		if (graphicsFont == null) {
+			try {
+				graphicsFont = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(getFontData()));
+			} catch (FontFormatException e) {
+				throw new IOException("Unable to load font: " + FONT_RESOURCE, e);
+			}
+		}
+		return graphicsFont;
+	}
+}
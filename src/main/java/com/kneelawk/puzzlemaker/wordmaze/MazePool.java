@@ -0,0 +1,152 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class MazePool {
+	private final Map<Shape, BlockingQueue<PooledMaze>> pools = Maps.newLinkedHashMap();
+	private final Object refill = new Object();
+	private Thread thread;
+
+	public MazePool(List<WordMazeGeneratorArguments> shapes, int depth) {
+		for (WordMazeGeneratorArguments arguments : shapes) {
+			pools.putIfAbsent(new Shape(arguments), new ArrayBlockingQueue<>(depth));
+		}
+	}
+
+	public int getShapeCount() {
+		return pools.size();
+	}
+
+	public void start() {
+		// carving only happens when nothing more important wants the processor
+		thread = new Thread(this::fill, "maze-pool");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	public void stop() {
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	public PooledMaze take(WordMazeGeneratorArguments arguments) {
+		BlockingQueue<PooledMaze> pool = pools.get(new Shape(arguments));
+		if (pool == null) {
+			return null;
+		}
+		PooledMaze maze = pool.poll();
+		if (maze != null) {
+			synchronized (refill) {
+				refill.notifyAll();
+			}
+		}
+		return maze;
+	}
+
+	private void fill() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// shapes are topped up in turn so one busy size can't starve the others
+				boolean carved = false;
+				for (Map.Entry<Shape, BlockingQueue<PooledMaze>> pool : pools.entrySet()) {
+					if (pool.getValue().remainingCapacity() > 0) {
+						pool.getValue().offer(pool.getKey().carve(MazeRandom.newSeed()));
+						carved = true;
+					}
+				}
+
+				if (!carved) {
+					synchronized (refill) {
+						while (isFull()) {
+							refill.wait();
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean isFull() {
+		for (BlockingQueue<PooledMaze> pool : pools.values()) {
+			if (pool.remainingCapacity() > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static class PooledMaze {
+		private final long seed;
+		private final WordMaze maze;
+
+		private PooledMaze(long seed, WordMaze maze) {
+			this.seed = seed;
+			this.maze = maze;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public WordMaze getMaze() {
+			return maze;
+		}
+	}
+
+	private static class Shape {
+		final int width;
+		final int height;
+		final int boxWidth;
+		final int boxHeight;
+		final int startPosition;
+		final int endPosition;
+		final int barrierRemovals;
+
+		Shape(WordMazeGeneratorArguments arguments) {
+			width = arguments.getMazeWidth();
+			height = arguments.getMazeHeight();
+			boxWidth = arguments.getBoxWidth();
+			boxHeight = arguments.getBoxHeight();
+			startPosition = arguments.getStartPosition();
+			endPosition = arguments.getEndPosition();
+			barrierRemovals = arguments.getBarrierRemovals();
+		}
+
+		PooledMaze carve(long seed) {
+			// carved from the first split of the seed, exactly as a job given this seed would carve it
+			WordMaze maze = new WordMaze(new MazeRandom(seed).split(), width, height, boxWidth, boxHeight,
+					startPosition, endPosition);
+			maze.generateMaze(barrierRemovals);
+			return new PooledMaze(seed, maze);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Shape shape = (Shape) o;
+			return width == shape.width &&
+					height == shape.height &&
+					boxWidth == shape.boxWidth &&
+					boxHeight == shape.boxHeight &&
+					startPosition == shape.startPosition &&
+					endPosition == shape.endPosition &&
+					barrierRemovals == shape.barrierRemovals;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(width, height, boxWidth, boxHeight, startPosition, endPosition, barrierRemovals);
+		}
+	}
+}
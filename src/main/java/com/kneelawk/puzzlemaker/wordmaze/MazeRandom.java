@@ -0,0 +1,40 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.util.SplittableRandom;
+
+public class MazeRandom {
+	private final SplittableRandom random;
+
+	public MazeRandom(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	private MazeRandom(SplittableRandom random) {
+		this.random = random;
+	}
+
+	public static long newSeed() {
+		return new SplittableRandom().nextLong();
+	}
+
+	public MazeRandom split() {
+		// a child stream is fixed by the parent's state, so children split in the same order always match
+		return new MazeRandom(random.split());
+	}
+
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	public boolean nextBoolean() {
+		return random.nextBoolean();
+	}
+
+	public float nextFloat() {
+		return (random.nextInt() >>> 8) * 0x1.0p-24f;
+	}
+}
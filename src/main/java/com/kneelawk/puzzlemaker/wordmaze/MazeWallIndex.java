@@ -0,0 +1,89 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class MazeWallIndex {
+	public static final int BLOCK_SIZE = 32;
+
+	private final int blocksWide;
+	private final int blocksHigh;
+	private final int[][] blockRuns;
+	private final int[] blockRunCounts;
+
+	public MazeWallIndex(WordMazeSnapshot maze) {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		blocksWide = width / BLOCK_SIZE + 1;
+		blocksHigh = height / BLOCK_SIZE + 1;
+		blockRuns = new int[blocksWide * blocksHigh][];
+		blockRunCounts = new int[blocksWide * blocksHigh];
+
+		// vertical runs, split wherever they cross into a new block
+		for (int x = 0; x <= width; x++) {
+			int runStart = -1;
+			for (int y = 0; y <= height; y++) {
+				boolean wall = y < height && maze.getVertical(x, y);
+				if (runStart >= 0 && (!wall || y % BLOCK_SIZE == 0)) {
+					addRun(x / BLOCK_SIZE, runStart / BLOCK_SIZE, x, runStart, x, y);
+					runStart = -1;
+				}
+				if (wall && runStart < 0) {
+					runStart = y;
+				}
+			}
+		}
+
+		// horizontal runs
+		for (int y = 0; y <= height; y++) {
+			int runStart = -1;
+			for (int x = 0; x <= width; x++) {
+				boolean wall = x < width && maze.getHorizontal(x, y);
+				if (runStart >= 0 && (!wall || x % BLOCK_SIZE == 0)) {
+					addRun(runStart / BLOCK_SIZE, y / BLOCK_SIZE, runStart, y, x, y);
+					runStart = -1;
+				}
+				if (wall && runStart < 0) {
+					runStart = x;
+				}
+			}
+		}
+	}
+
+	private void addRun(int blockX, int blockY, int x1, int y1, int x2, int y2) {
+		int block = blockY * blocksWide + blockX;
+		int[] runs = blockRuns[block];
+		int count = blockRunCounts[block];
+		if (runs == null) {
+			runs = new int[4 * 8];
+		} else if (runs.length < (count + 1) * 4) {
+			runs = Arrays.copyOf(runs, runs.length * 2);
+		}
+		runs[count * 4] = x1;
+		runs[count * 4 + 1] = y1;
+		runs[count * 4 + 2] = x2;
+		runs[count * 4 + 3] = y2;
+		blockRuns[block] = runs;
+		blockRunCounts[block] = count + 1;
+	}
+
+	public void forEachRun(int minX, int minY, int maxX, int maxY, RunConsumer consumer) throws IOException {
+		int minBlockX = Math.max(minX / BLOCK_SIZE, 0), minBlockY = Math.max(minY / BLOCK_SIZE, 0);
+		int maxBlockX = Math.min(maxX / BLOCK_SIZE, blocksWide - 1);
+		int maxBlockY = Math.min(maxY / BLOCK_SIZE, blocksHigh - 1);
+		for (int blockY = minBlockY; blockY <= maxBlockY; blockY++) {
+			for (int blockX = minBlockX; blockX <= maxBlockX; blockX++) {
+				int block = blockY * blocksWide + blockX;
+				int[] runs = blockRuns[block];
+				for (int i = 0; i < blockRunCounts[block]; i++) {
+					consumer.accept(runs[i * 4], runs[i * 4 + 1], runs[i * 4 + 2], runs[i * 4 + 3]);
+				}
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface RunConsumer {
+		void accept(int x1, int y1, int x2, int y2) throws IOException;
+	}
+}
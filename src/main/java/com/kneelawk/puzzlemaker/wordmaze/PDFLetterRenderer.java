@@ -0,0 +1,88 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.util.List;
+
+public class PDFLetterRenderer {
+	private final GlyphWidthCache glyphWidths;
+	private final float fontSize;
+	private final float ascent;
+	private final float textHeight;
+
+	public PDFLetterRenderer(GlyphWidthCache glyphWidths, float fontSize) {
+		this.glyphWidths = glyphWidths;
+		this.fontSize = fontSize;
+
+		PDFontDescriptor descriptor = glyphWidths.getFont().getFontDescriptor();
+		ascent = descriptor.getAscent() / 1000f * fontSize;
+		textHeight = (descriptor.getAscent() - descriptor.getDescent() + descriptor.getLeading()) / 1000f * fontSize;
+	}
+
+	public void drawLetters(PDPageContentStream stream, WordMazeSnapshot maze, float x, float y) throws IOException {
+		drawLetters(stream, maze, x, y, -1, -1, maze.getWidth(), maze.getHeight());
+	}
+
+	public void drawLetters(PDPageContentStream stream, WordMazeSnapshot maze, float x, float y, int minX, int minY,
+							int maxX, int maxY) throws IOException {
+		int boxWidth = maze.getBoxWidth();
+		int boxHeight = maze.getBoxHeight();
+
+		stream.beginText();
+		stream.setFont(glyphWidths.getFont(), fontSize);
+
+		// each row is a single positioned text run
+		List<Object> run = Lists.newArrayList();
+		StringBuilder glyphs = new StringBuilder();
+		for (int row = Math.max(minY, 0); row <= Math.min(maxY, maze.getHeight() - 1); row++) {
+			float penX = 0;
+			boolean started = false;
+			for (int column = Math.max(minX, 0); column <= Math.min(maxX, maze.getWidth() - 1); column++) {
+				char c = maze.getCharacter(column, row);
+				if (c == 0) {
+					continue;
+				}
+
+				float charWidth = glyphWidths.getWidth(c, fontSize);
+				float glyphX = column * boxWidth + (boxWidth - charWidth) / 2;
+				if (!started) {
+					stream.setTextMatrix(Matrix.getTranslateInstance(x + glyphX, y - baseline(row, boxHeight)));
+					started = true;
+				} else if (glyphX != penX) {
+					if (glyphs.length() > 0) {
+						run.add(glyphs.toString());
+						glyphs.setLength(0);
+					}
+					run.add(-(glyphX - penX) * 1000f / fontSize);
+				}
+				glyphs.append(c);
+				penX = glyphX + charWidth;
+			}
+
+			if (started) {
+				run.add(glyphs.toString());
+				glyphs.setLength(0);
+				stream.showTextWithPositioning(run.toArray());
+				run.clear();
+			}
+		}
+
+		char extraLetter = maze.getExtraLetter();
+		Vec2i loc = maze.getExtraLetterLocation();
+		if (extraLetter != 0 && loc.x >= minX && loc.x <= maxX && loc.y >= minY && loc.y <= maxY) {
+			float glyphX = loc.x * boxWidth + (boxWidth - glyphWidths.getWidth(extraLetter, fontSize)) / 2;
+			stream.setTextMatrix(Matrix.getTranslateInstance(x + glyphX, y - baseline(loc.y, boxHeight)));
+			stream.showText(String.valueOf(extraLetter));
+		}
+
+		stream.endText();
+	}
+
+	private float baseline(int row, int boxHeight) {
+		return row * boxHeight + (boxHeight - textHeight) / 2 + ascent;
+	}
+}
@@ -0,0 +1,85 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class PNGMazeRenderer {
+	private static final int TILE_SIZE = 512;
+	private static final int MARGIN = 40;
+
+	private final ExecutorService executor;
+	private final Font font;
+
+	public PNGMazeRenderer(ExecutorService executor, Font font) {
+		this.executor = executor;
+		this.font = font;
+	}
+
+	public BufferedImage render(WordMazeSnapshot maze, float scale) throws IOException {
+		int imageWidth = (int) Math.ceil((maze.getBoxWidth() * maze.getWidth() + 2 * MARGIN) * scale);
+		int imageHeight = (int) Math.ceil((maze.getBoxHeight() * maze.getHeight() + 2 * MARGIN) * scale);
+		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_BYTE_GRAY);
+		Font mazeFont = font.deriveFont(maze.getBoxHeight() - 6f);
+
+		// each tile draws into its own region of the shared image raster
+		List<Future<?>> tiles = Lists.newArrayList();
+		for (int tileY = 0; tileY < imageHeight; tileY += TILE_SIZE) {
+			for (int tileX = 0; tileX < imageWidth; tileX += TILE_SIZE) {
+				BufferedImage tile = image.getSubimage(tileX, tileY, Math.min(TILE_SIZE, imageWidth - tileX),
+						Math.min(TILE_SIZE, imageHeight - tileY));
+				int x = tileX, y = tileY;
+				tiles.add(executor.submit(() -> renderTile(maze, tile, x, y, scale, mazeFont)));
+			}
+		}
+
+		try {
+			for (Future<?> tile : tiles) {
+				tile.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering maze tiles", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to render maze tile", e.getCause());
+		}
+
+		return image;
+	}
+
+	public void write(WordMazeSnapshot maze, float scale, File output) throws IOException {
+		ImageIO.write(render(maze, scale), "png", output);
+	}
+
+	private static void renderTile(WordMazeSnapshot maze, BufferedImage tile, int tileX, int tileY, float scale,
+								   Font mazeFont) {
+		Graphics2D graphics2D = tile.createGraphics();
+		graphics2D.setColor(Color.WHITE);
+		graphics2D.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+		graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics2D.translate(-tileX, -tileY);
+		graphics2D.scale(scale, scale);
+		graphics2D.translate(MARGIN, MARGIN);
+		graphics2D.setFont(mazeFont);
+
+		// find the cells overlapping this tile, padded by one to catch wall strokes and glyph overhang
+		int boxWidth = maze.getBoxWidth(), boxHeight = maze.getBoxHeight();
+		int minX = (int) Math.floor((tileX / scale - MARGIN) / boxWidth) - 1;
+		int minY = (int) Math.floor((tileY / scale - MARGIN) / boxHeight) - 1;
+		int maxX = (int) Math.floor(((tileX + tile.getWidth()) / scale - MARGIN) / boxWidth) + 1;
+		int maxY = (int) Math.floor(((tileY + tile.getHeight()) / scale - MARGIN) / boxHeight) + 1;
+
+		maze.drawWalls(graphics2D, minX, minY, maxX, maxY);
+		maze.drawLetters(graphics2D, minX, minY, maxX, maxY);
+		graphics2D.dispose();
+	}
+}
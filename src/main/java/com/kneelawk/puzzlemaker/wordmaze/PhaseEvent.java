@@ -0,0 +1,30 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kneelawk.puzzlemaker.Phase")
+@Label("Puzzle Phase")
+@Description("One step of making a puzzle, from loading its questions to writing its outputs")
+@Category("PuzzleMaker")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+	@Label("Phase")
+	String phase;
+
+	@Label("Maze Width")
+	int mazeWidth;
+
+	@Label("Maze Height")
+	int mazeHeight;
+
+	@Label("Word Length")
+	int wordLength;
+
+	@Label("Seed")
+	long seed;
+}
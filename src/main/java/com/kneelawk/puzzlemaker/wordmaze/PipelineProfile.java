@@ -0,0 +1,146 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+public class PipelineProfile {
+	private final Map<String, PhaseTotal> phases = Maps.newLinkedHashMap();
+	private final SearchStats solveStats = new SearchStats();
+	private final SearchStats alternateStats = new SearchStats();
+
+	public Phase start(String name, int mazeWidth, int mazeHeight, int wordLength, long seed) {
+		PhaseEvent event = new PhaseEvent();
+		event.phase = name;
+		event.mazeWidth = mazeWidth;
+		event.mazeHeight = mazeHeight;
+		event.wordLength = wordLength;
+		event.seed = seed;
+		event.begin();
+		return new Phase(name, event);
+	}
+
+	public <E extends Exception> void time(String name, int mazeWidth, int mazeHeight, int wordLength, long seed,
+										   PhaseAction<E> action) throws E {
+		// a plain try-finally instead of try-with-resources, whose unused resource variable the try lint flags
+		Phase phase = start(name, mazeWidth, mazeHeight, wordLength, seed);
+		try {
+			action.run();
+		} finally {
+			phase.close();
+		}
+	}
+
+	public void addSearch(String search, SearchStats stats, int mazeWidth, int mazeHeight, int wordLength) {
+		synchronized (this) {
+			(search.equals("solve") ? solveStats : alternateStats).add(stats);
+		}
+
+		// only the counters matter here, the time spent is already in the phase event around the search
+		SearchEvent event = new SearchEvent();
+		if (event.isEnabled()) {
+			event.search = search;
+			event.mazeWidth = mazeWidth;
+			event.mazeHeight = mazeHeight;
+			event.wordLength = wordLength;
+			event.nodesExpanded = stats.getNodesExpanded();
+			event.backtracks = stats.getBacktracks();
+			event.maxDepth = stats.getMaxDepth();
+			event.alternatesPlaced = stats.getAlternatesPlaced();
+			event.alternatesPartial = stats.getAlternatesPartial();
+			event.alternatesSkipped = stats.getAlternatesSkipped();
+			event.commit();
+		}
+	}
+
+	public synchronized String summary() {
+		StringBuilder summary = new StringBuilder("Phases:");
+		boolean first = true;
+		for (Map.Entry<String, PhaseTotal> phase : phases.entrySet()) {
+			summary.append(first ? " " : ", ").append(phase.getKey()).append(' ')
+					.append(phase.getValue().nanos / 1000000).append("ms");
+			first = false;
+		}
+		summary.append("; solve: ").append(solveStats.getNodesExpanded()).append(" nodes, ")
+				.append(solveStats.getBacktracks()).append(" backtracks, depth ").append(solveStats.getMaxDepth());
+		summary.append("; alternates: ").append(alternateStats.getAlternatesPlaced()).append(" placed (")
+				.append(alternateStats.getAlternatesPartial()).append(" partially), ")
+				.append(alternateStats.getAlternatesSkipped()).append(" skipped, ")
+				.append(alternateStats.getNodesExpanded()).append(" nodes");
+		return summary.toString();
+	}
+
+	public synchronized String toJSON() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"phases\": {\n");
+		boolean first = true;
+		for (Map.Entry<String, PhaseTotal> phase : phases.entrySet()) {
+			json.append(first ? "" : ",\n").append("    \"").append(phase.getKey()).append("\": {\"millis\": ")
+					.append(phase.getValue().nanos / 1e6).append(", \"count\": ").append(phase.getValue().count)
+					.append('}');
+			first = false;
+		}
+		json.append(first ? "" : "\n").append("  },\n");
+		json.append("  \"solve\": {\n");
+		json.append("    \"nodesExpanded\": ").append(solveStats.getNodesExpanded()).append(",\n");
+		json.append("    \"backtracks\": ").append(solveStats.getBacktracks()).append(",\n");
+		json.append("    \"maxDepth\": ").append(solveStats.getMaxDepth()).append("\n");
+		json.append("  },\n");
+		json.append("  \"alternates\": {\n");
+		json.append("    \"nodesExpanded\": ").append(alternateStats.getNodesExpanded()).append(",\n");
+		json.append("    \"backtracks\": ").append(alternateStats.getBacktracks()).append(",\n");
+		json.append("    \"maxDepth\": ").append(alternateStats.getMaxDepth()).append(",\n");
+		json.append("    \"placed\": ").append(alternateStats.getAlternatesPlaced()).append(",\n");
+		json.append("    \"partial\": ").append(alternateStats.getAlternatesPartial()).append(",\n");
+		json.append("    \"skipped\": ").append(alternateStats.getAlternatesSkipped()).append("\n");
+		json.append("  }\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+	public void writeJSON(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(toJSON());
+		}
+	}
+
+	private synchronized void record(String name, long nanos) {
+		PhaseTotal total = phases.computeIfAbsent(name, k -> new PhaseTotal());
+		total.nanos += nanos;
+		total.count++;
+	}
+
+	private static class PhaseTotal {
+		long nanos;
+		int count;
+	}
+
+	@FunctionalInterface
+	public interface PhaseAction<E extends Exception> {
+		void run() throws E;
+	}
+
+	public class Phase implements AutoCloseable {
+		private final String name;
+		private final PhaseEvent event;
+		private final long start = System.nanoTime();
+
+		private Phase(String name, PhaseEvent event) {
+			this.name = name;
+			this.event = event;
+		}
+
+		@Override
+		public void close() {
+			// a phase that throws still ends here, so a failed solve shows up with the time it took
+			record(name, System.nanoTime() - start);
+			event.commit();
+		}
+	}
+}
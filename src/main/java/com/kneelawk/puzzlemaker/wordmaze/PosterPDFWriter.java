@@ -0,0 +1,200 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class PosterPDFWriter {
+	private static final int MAZE_MARGIN = 40;
+	private static final float MARK_SIZE = 8;
+	private static final float LABEL_FONT_SIZE = 8;
+
+	private final ExecutorService executor;
+	private final PDRectangle pageSize;
+	private final float pageMargin;
+	private final float overlap;
+
+	public PosterPDFWriter(ExecutorService executor, PDRectangle pageSize, float pageMargin, float overlap) {
+		this.executor = executor;
+		this.pageSize = pageSize;
+		this.pageMargin = pageMargin;
+		this.overlap = overlap;
+	}
+
+	public void writePages(PDDocument document, GlyphWidthCache glyphWidths, WordMazeSnapshot maze)
+			throws IOException {
+		float printableWidth = pageSize.getWidth() - 2 * pageMargin;
+		float printableHeight = pageSize.getHeight() - 2 * pageMargin;
+		float stepX = printableWidth - overlap;
+		float stepY = printableHeight - overlap;
+		int canvasWidth = maze.getBoxWidth() * maze.getWidth() + 2 * MAZE_MARGIN;
+		int canvasHeight = maze.getBoxHeight() * maze.getHeight() + 2 * MAZE_MARGIN;
+		int columns = Math.max((int) Math.ceil((canvasWidth - overlap) / stepX), 1);
+		int rows = Math.max((int) Math.ceil((canvasHeight - overlap) / stepY), 1);
+
+		MazeWallIndex wallIndex = new MazeWallIndex(maze);
+		PDFLetterRenderer letterRenderer = new PDFLetterRenderer(glyphWidths, maze.getBoxHeight() - 6f);
+
+		// the font is shared between tiles, so every glyph they use has to be encoded here first
+		PDFont font = glyphWidths.getFont();
+		for (int y = 0; y < maze.getHeight(); y++) {
+			for (int x = 0; x < maze.getWidth(); x++) {
+				prepareGlyph(glyphWidths, maze.getCharacter(x, y));
+			}
+		}
+		prepareGlyph(glyphWidths, maze.getExtraLetter());
+		List<String> labels = Lists.newArrayList();
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				String label = "Row " + (row + 1) + " of " + rows + ", column " + (column + 1) + " of " + columns;
+				for (char c : label.toCharArray()) {
+					prepareGlyph(glyphWidths, c);
+				}
+				labels.add(label);
+			}
+		}
+		registerFont(document, font);
+
+		// each tile writes its content on its own thread into a buffer
+		List<PDResources> tileResources = Lists.newArrayList();
+		List<Future<byte[]>> tiles = Lists.newArrayList();
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				PDFormXObject tileForm = new PDFormXObject(document);
+				PDResources resources = new PDResources();
+				resources.add(font);
+				tileForm.setResources(resources);
+				tileResources.add(resources);
+
+				float tileX = column * stepX, tileY = row * stepY;
+				String label = labels.get(row * columns + column);
+				tiles.add(executor.submit(
+						() -> renderTile(document, tileForm, maze, wallIndex, letterRenderer, font, tileX, tileY,
+								label)));
+			}
+		}
+
+		try {
+			for (int i = 0; i < tiles.size(); i++) {
+				PDPage page = new PDPage(pageSize);
+				page.setResources(tileResources.get(i));
+				PDStream contents = new PDStream(document);
+				try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+					out.write(tiles.get(i).get());
+				}
+				page.setContents(contents);
+				document.addPage(page);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering poster tiles", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to render poster tile", e.getCause());
+		}
+	}
+
+	private static void registerFont(PDDocument document, PDFont font) throws IOException {
+		// setting a font on a stream adds it to the document's fonts to subset, a plain hash set, so the first
+		// insert happens here and the tile threads only ever find the font already in it
+		PDFormXObject form = new PDFormXObject(document);
+		form.setResources(new PDResources());
+		try (PDPageContentStream stream = new PDPageContentStream(document, form, new ByteArrayOutputStream())) {
+			stream.beginText();
+			stream.setFont(font, LABEL_FONT_SIZE);
+			stream.endText();
+		}
+	}
+
+	private static void prepareGlyph(GlyphWidthCache glyphWidths, char c) throws IOException {
+		if (c != 0) {
+			glyphWidths.getGlyphSpaceWidth(c);
+			glyphWidths.getFont().addToSubset(c);
+			glyphWidths.getFont().encode(String.valueOf(c));
+		}
+	}
+
+	private byte[] renderTile(PDDocument document, PDFormXObject tileForm, WordMazeSnapshot maze,
+							  MazeWallIndex wallIndex, PDFLetterRenderer letterRenderer, PDFont font, float tileX,
+							  float tileY, String label) throws IOException {
+		float printableWidth = pageSize.getWidth() - 2 * pageMargin;
+		float printableHeight = pageSize.getHeight() - 2 * pageMargin;
+		int boxWidth = maze.getBoxWidth(), boxHeight = maze.getBoxHeight();
+
+		// page position of the top left corner of the maze grid
+		float originX = pageMargin - tileX + MAZE_MARGIN;
+		float originY = pageSize.getHeight() - pageMargin + tileY - MAZE_MARGIN;
+
+		// find the cells overlapping this tile, padded by one to catch wall strokes and glyph overhang
+		int minX = (int) Math.floor((tileX - MAZE_MARGIN) / boxWidth) - 1;
+		int minY = (int) Math.floor((tileY - MAZE_MARGIN) / boxHeight) - 1;
+		int maxX = (int) Math.floor((tileX + printableWidth - MAZE_MARGIN) / boxWidth) + 1;
+		int maxY = (int) Math.floor((tileY + printableHeight - MAZE_MARGIN) / boxHeight) + 1;
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PDPageContentStream stream = new PDPageContentStream(document, tileForm, out)) {
+			stream.saveGraphicsState();
+			stream.addRect(pageMargin, pageMargin, printableWidth, printableHeight);
+			stream.clip();
+
+			// draw the walls in this tile
+			stream.setLineWidth(2);
+			stream.setLineCapStyle(2);
+			wallIndex.forEachRun(minX, minY, maxX, maxY, (x1, y1, x2, y2) -> {
+				stream.moveTo(originX + x1 * boxWidth, originY - y1 * boxHeight);
+				stream.lineTo(originX + x2 * boxWidth, originY - y2 * boxHeight);
+			});
+			stream.stroke();
+
+			// draw the letters in this tile
+			letterRenderer.drawLetters(stream, maze, originX, originY, minX, minY, maxX, maxY);
+			stream.restoreGraphicsState();
+
+			// draw registration marks in the middle of the overlap with each neighbouring page
+			stream.setLineWidth(0.5f);
+			float left = pageMargin + overlap / 2, right = pageSize.getWidth() - pageMargin - overlap / 2;
+			float bottom = pageMargin + overlap / 2, top = pageSize.getHeight() - pageMargin - overlap / 2;
+			drawRegistrationMark(stream, left, top);
+			drawRegistrationMark(stream, right, top);
+			drawRegistrationMark(stream, left, bottom);
+			drawRegistrationMark(stream, right, bottom);
+
+			// label the page so the tiles can be assembled in order
+			stream.beginText();
+			stream.setFont(font, LABEL_FONT_SIZE);
+			stream.newLineAtOffset(pageMargin, pageMargin / 2);
+			stream.showText(label);
+			stream.endText();
+		}
+		return out.toByteArray();
+	}
+
+	private static void drawRegistrationMark(PDPageContentStream stream, float x, float y) throws IOException {
+		float radius = MARK_SIZE / 2;
+		float control = radius * 0.5523f;
+		stream.moveTo(x - MARK_SIZE, y);
+		stream.lineTo(x + MARK_SIZE, y);
+		stream.moveTo(x, y - MARK_SIZE);
+		stream.lineTo(x, y + MARK_SIZE);
+		stream.moveTo(x + radius, y);
+		stream.curveTo(x + radius, y + control, x + control, y + radius, x, y + radius);
+		stream.curveTo(x - control, y + radius, x - radius, y + control, x - radius, y);
+		stream.curveTo(x - radius, y - control, x - control, y - radius, x, y - radius);
+		stream.curveTo(x + control, y - radius, x + radius, y - control, x + radius, y);
+		stream.stroke();
+	}
+}
@@ -0,0 +1,194 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class PuzzleChunker {
+	private final WordMazeGeneratorArguments arguments;
+	private final ExecutorService executor;
+	private final PuzzleWriter writer;
+	private final ThreadLocal<PuzzleGenerator> generators;
+
+	public PuzzleChunker(WordMazeGeneratorArguments arguments, ExecutorService executor) {
+		this.arguments = arguments;
+		this.executor = executor;
+		PosterPDFWriter poster = arguments.isPoster() ?
+				new PosterPDFWriter(executor, PDRectangle.A4, arguments.getPosterMargin(),
+						arguments.getPosterOverlap()) : null;
+		writer = new PuzzleWriter(executor, poster);
+
+		// generators reuse their maze between puzzles, so each worker thread keeps its own
+		generators = ThreadLocal.withInitial(() -> PuzzleGenerator.builder()
+				.width(arguments.getMazeWidth())
+				.height(arguments.getMazeHeight())
+				.boxSize(arguments.getBoxWidth(), arguments.getBoxHeight())
+				.startPosition(arguments.getStartPosition())
+				.endPosition(arguments.getEndPosition())
+				.barrierRemovals(arguments.getBarrierRemovals())
+				.alphabet(arguments.getAlphabet())
+				.build());
+	}
+
+	public static List<Chunk> partition(List<String> questions, QuestionBank questionBank, int chunkLength) {
+		List<String> answers = questionBank.getAnswers();
+		int[] ends = new int[answers.size() + 1];
+		int longest = 0;
+		for (int i = 0; i < answers.size(); i++) {
+			int answerLength = answers.get(i).length();
+			if (answerLength > chunkLength) {
+				throw new IllegalArgumentException("The answer on row " + (i + 1) + " has " + answerLength +
+						" letters, more than the chunk length of " + chunkLength + ".");
+			}
+			longest = Math.max(longest, answerLength);
+			ends[i + 1] = ends[i] + answerLength;
+		}
+
+		// as few chunks as the chunk length allows, and within that the smallest limit that still needs no more
+		int chunkCount = chunksFrom(ends, 0, chunkLength);
+		int low = longest, high = chunkLength;
+		while (low < high) {
+			int middle = (low + high) / 2;
+			if (chunksFrom(ends, 0, middle) <= chunkCount) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		int limit = low;
+		int[] needed = new int[ends.length];
+		for (int i = ends.length - 2; i >= 0; i--) {
+			needed[i] = needed[lastEnd(ends, i, limit)] + 1;
+		}
+
+		// rows stay in order, each chunk ends as close to an even share of what's left as the limit allows, a short
+		// leftover chunk couldn't stretch from the start to the end of a maze sized for the others
+		List<Chunk> chunks = Lists.newArrayList();
+		int start = 0;
+		for (int chunksLeft = chunkCount; chunksLeft > 1; chunksLeft--) {
+			int target = ends[start] + (ends[answers.size()] - ends[start]) / chunksLeft;
+			int latest = lastEnd(ends, start, limit);
+			int earliest = latest;
+			while (earliest - 1 > start && needed[earliest - 1] <= chunksLeft - 1) {
+				earliest--;
+			}
+			int end = earliest;
+			for (int candidate = earliest + 1; candidate <= latest; candidate++) {
+				if (Math.abs(ends[candidate] - target) < Math.abs(ends[end] - target)) {
+					end = candidate;
+				}
+			}
+			chunks.add(new Chunk(questions, questionBank, start, end, ends[end] - ends[start]));
+			start = end;
+		}
+		if (start < answers.size()) {
+			chunks.add(new Chunk(questions, questionBank, start, answers.size(), ends[answers.size()] - ends[start]));
+		}
+		return chunks;
+	}
+
+	private static int chunksFrom(int[] ends, int start, int limit) {
+		// filling every chunk as far as it goes takes the fewest chunks
+		int count = 0;
+		while (start < ends.length - 1) {
+			start = lastEnd(ends, start, limit);
+			count++;
+		}
+		return count;
+	}
+
+	private static int lastEnd(int[] ends, int start, int limit) {
+		// the furthest row boundary that keeps the chunk within the limit, always past at least one row
+		int low = start + 1, high = ends.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) / 2;
+			if (ends[middle] - ends[start] <= limit) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	public List<PuzzleGenerator.GeneratedPuzzle> generate(List<Chunk> chunks, long seed)
+			throws UnsolvableException, InterruptedException {
+		// chunk seeds are drawn in order before anything runs, so the mazes don't depend on which thread finishes first
+		MazeRandom seeds = new MazeRandom(seed);
+		List<Future<PuzzleGenerator.GeneratedPuzzle>> futures = Lists.newArrayList();
+		for (Chunk chunk : chunks) {
+			long chunkSeed = seeds.nextLong();
+			futures.add(executor.submit(() -> generators.get().generate(chunk.questionBank, chunkSeed)));
+		}
+
+		List<PuzzleGenerator.GeneratedPuzzle> puzzles = Lists.newArrayList();
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					puzzles.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof UnsolvableException) {
+						throw new UnsolvableException("Chunk " + (i + 1) + " of " + chunks.size() + ": " +
+								e.getCause().getMessage(), e.getCause());
+					}
+					throw new IllegalStateException("Unable to generate chunk " + (i + 1), e.getCause());
+				}
+			}
+		} finally {
+			for (Future<PuzzleGenerator.GeneratedPuzzle> future : futures) {
+				future.cancel(false);
+			}
+		}
+		return puzzles;
+	}
+
+	public void writePDFs(List<Chunk> chunks, List<PuzzleGenerator.GeneratedPuzzle> puzzles) throws IOException {
+		if (arguments.getOutputPDF() != null) {
+			writePDF(chunks, puzzles, false, arguments.getOutputPDF());
+		}
+		if (arguments.getAnswerPDF() != null) {
+			writePDF(chunks, puzzles, true, arguments.getAnswerPDF());
+		}
+	}
+
+	private void writePDF(List<Chunk> chunks, List<PuzzleGenerator.GeneratedPuzzle> puzzles, boolean answers,
+						  File output) throws IOException {
+		// every maze page is followed by the questions for its own chunk
+		try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+			GlyphWidthCache glyphWidths = new GlyphWidthCache(MazeFonts.loadTextFont(document));
+			for (int i = 0; i < chunks.size(); i++) {
+				PuzzleGenerator.GeneratedPuzzle puzzle = puzzles.get(i);
+				writer.appendPuzzle(document, glyphWidths, answers ? puzzle.getAnswer() : puzzle.getPuzzle(),
+						chunks.get(i).questions);
+			}
+			document.save(output);
+		}
+	}
+
+	public static class Chunk {
+		private final List<String> questions;
+		private final QuestionBank questionBank;
+
+		private Chunk(List<String> questions, QuestionBank questionBank, int start, int end, int answerLength) {
+			this.questions = questions.subList(start, end);
+			this.questionBank = new QuestionBank(questionBank.getAnswers().subList(start, end),
+					questionBank.getAlternateAnswers().subList(start, end), answerLength);
+		}
+
+		public List<String> getQuestions() {
+			return questions;
+		}
+
+		public QuestionBank getQuestionBank() {
+			return questionBank;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+public class PuzzleGenerator {
+	private static final int DEFAULT_SOLVE_ATTEMPTS = 3;
+
+	private final WordMazeGeneratorArguments arguments;
+	private final int solveAttempts;
+	private WordMaze maze;
+
+	private PuzzleGenerator(WordMazeGeneratorArguments arguments, int solveAttempts) {
+		this.arguments = arguments;
+		this.solveAttempts = solveAttempts;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public int getMazeWidth() {
+		return arguments.getMazeWidth();
+	}
+
+	public int getMazeHeight() {
+		return arguments.getMazeHeight();
+	}
+
+	public GeneratedPuzzle generate(QuestionBank questionBank) throws UnsolvableException {
+		return generate(questionBank, MazeRandom.newSeed());
+	}
+
+	public GeneratedPuzzle generate(QuestionBank questionBank, long seed) throws UnsolvableException {
+		// the random streams are drawn exactly like a puzzle job's, so a seed makes the same puzzle as --seed does
+		MazeRandom random = new MazeRandom(seed);
+		for (int attempt = 1; ; attempt++) {
+			carveMaze(random.split());
+			List<List<Vec2i>> alternateLocations;
+			try {
+				alternateLocations = maze.pathWordString(questionBank.getAnswers());
+			} catch (UnsolvableException e) {
+				if (attempt >= solveAttempts) {
+					throw e;
+				}
+				continue;
+			}
+
+			WordMazeSnapshot answer = maze.snapshot();
+			List<Vec2i> solutionPath = maze.getSolutionPath();
+			maze.addAlternateAnswers(alternateLocations, questionBank.getAlternateAnswers());
+			maze.fillRandomCharacters(arguments.getAlphabet());
+			return new GeneratedPuzzle(seed, answer, maze.snapshot(), solutionPath, arguments.getStartPosition(),
+					arguments.getEndPosition());
+		}
+	}
+
+	private void carveMaze(MazeRandom random) {
+		// one maze is kept and reset for every puzzle, so its arrays are only allocated once per generator
+		if (maze == null) {
+			maze = new WordMaze(random, arguments.getMazeWidth(), arguments.getMazeHeight(), arguments.getBoxWidth(),
+					arguments.getBoxHeight(), arguments.getStartPosition(), arguments.getEndPosition());
+		} else {
+			maze.reset(random, arguments.getMazeWidth(), arguments.getMazeHeight(), arguments.getBoxWidth(),
+					arguments.getBoxHeight(), arguments.getStartPosition(), arguments.getEndPosition());
+		}
+		maze.generateMaze(arguments.getBarrierRemovals());
+	}
+
+	public static class GeneratedPuzzle {
+		private final long seed;
+		private final WordMazeSnapshot answer;
+		private final WordMazeSnapshot puzzle;
+		private final List<Vec2i> solutionPath;
+		private final int startPosition;
+		private final int endPosition;
+
+		private GeneratedPuzzle(long seed, WordMazeSnapshot answer, WordMazeSnapshot puzzle, List<Vec2i> solutionPath,
+								int startPosition, int endPosition) {
+			this.seed = seed;
+			this.answer = answer;
+			this.puzzle = puzzle;
+			this.solutionPath = ImmutableList.copyOf(solutionPath);
+			this.startPosition = startPosition;
+			this.endPosition = endPosition;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public WordMazeSnapshot getAnswer() {
+			return answer;
+		}
+
+		public WordMazeSnapshot getPuzzle() {
+			return puzzle;
+		}
+
+		public List<Vec2i> getSolutionPath() {
+			return solutionPath;
+		}
+
+		public MazeAnalysis analyze() {
+			return MazeAnalysis.analyze(answer, solutionPath);
+		}
+
+		public MazeFile toMazeFile(List<String> questions) {
+			return new MazeFile(puzzle, solutionPath, startPosition, endPosition, questions);
+		}
+	}
+
+	public static class Builder {
+		private Integer width;
+		private Integer height;
+		private Integer boxWidth;
+		private Integer boxHeight;
+		private Integer startPosition;
+		private Integer endPosition;
+		private Integer barrierRemovals;
+		private String alphabet;
+		private int solveAttempts = DEFAULT_SOLVE_ATTEMPTS;
+
+		private Builder() {
+		}
+
+		public Builder width(int width) {
+			this.width = width;
+			return this;
+		}
+
+		public Builder height(int height) {
+			this.height = height;
+			return this;
+		}
+
+		public Builder boxSize(int boxWidth, int boxHeight) {
+			this.boxWidth = boxWidth;
+			this.boxHeight = boxHeight;
+			return this;
+		}
+
+		public Builder startPosition(int startPosition) {
+			this.startPosition = startPosition;
+			return this;
+		}
+
+		public Builder endPosition(int endPosition) {
+			this.endPosition = endPosition;
+			return this;
+		}
+
+		public Builder barrierRemovals(int barrierRemovals) {
+			this.barrierRemovals = barrierRemovals;
+			return this;
+		}
+
+		public Builder alphabet(String alphabet) {
+			this.alphabet = alphabet;
+			return this;
+		}
+
+		public Builder solveAttempts(int solveAttempts) {
+			this.solveAttempts = solveAttempts;
+			return this;
+		}
+
+		public PuzzleGenerator build() {
+			if (solveAttempts < 1) {
+				throw new InvalidArgumentsException("Solve attempts must be at least 1.");
+			}
+
+			// the settings go through the same checks and defaults as a pool file's maze shapes
+			List<String> args = Lists.newArrayList();
+			addOption(args, "--width", width);
+			addOption(args, "--height", height);
+			addOption(args, "--box-width", boxWidth);
+			addOption(args, "--box-height", boxHeight);
+			addOption(args, "--start", startPosition);
+			addOption(args, "--end", endPosition);
+			addOption(args, "--barrier-removals", barrierRemovals);
+			addOption(args, "--alphabet", alphabet);
+			WordMazeGeneratorArguments arguments = new WordMazeGeneratorArguments();
+			arguments.parsePoolArguments(args.toArray(new String[0]));
+			return new PuzzleGenerator(arguments, solveAttempts);
+		}
+
+		private static void addOption(List<String> args, String option, Object value) {
+			if (value != null) {
+				args.add(option);
+				args.add(value.toString());
+			}
+		}
+	}
+}
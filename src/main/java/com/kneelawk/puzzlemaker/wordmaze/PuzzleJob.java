@@ -0,0 +1,426 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class PuzzleJob {
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final WordMazeGeneratorArguments arguments;
+	private final ExecutorService executor;
+	private final PuzzleWriter writer;
+	private final MazeCache cache;
+	private final MazePool pool;
+	private final PipelineProfile profile = new PipelineProfile();
+	private long seed;
+	private MazeRandom random;
+
+	private Iterable<String> questions;
+	private QuestionBank questionBank;
+	private WordMaze maze;
+	private List<List<Vec2i>> alternateLocations;
+	private WordMazeSnapshot answerSnapshot;
+	private WordMazeSnapshot puzzleSnapshot;
+	private List<Vec2i> solutionPath;
+	private MazeFile previousMaze;
+	private String cacheKey;
+	private boolean cached;
+	private boolean reusedMaze;
+
+	public PuzzleJob(WordMazeGeneratorArguments arguments, ExecutorService executor, MazeCache cache,
+					 long defaultSeed) {
+		this(arguments, executor, cache, null, defaultSeed);
+	}
+
+	public PuzzleJob(WordMazeGeneratorArguments arguments, ExecutorService executor, MazeCache cache, MazePool pool,
+					 long defaultSeed) {
+		this.arguments = arguments;
+		this.executor = executor;
+		this.cache = cache;
+		this.pool = pool;
+		seed = arguments.getSeed() != null ? arguments.getSeed() : defaultSeed;
+		random = new MazeRandom(seed);
+		PosterPDFWriter poster = arguments.isPoster() ?
+				new PosterPDFWriter(executor, PDRectangle.A4, arguments.getPosterMargin(),
+						arguments.getPosterOverlap()) : null;
+		writer = new PuzzleWriter(executor, poster);
+	}
+
+	public WordMazeGeneratorArguments getArguments() {
+		return arguments;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public QuestionBank getQuestionBank() {
+		return questionBank;
+	}
+
+	public PipelineProfile getProfile() {
+		return profile;
+	}
+
+	private <E extends Exception> void phase(String name, PipelineProfile.PhaseAction<E> action) throws E {
+		profile.time(name, getMazeWidth(), getMazeHeight(), getWordLength(), seed, action);
+	}
+
+	private int getMazeWidth() {
+		// a rendered maze file carries its own size, its arguments don't
+		return answerSnapshot != null ? answerSnapshot.getWidth() : arguments.getMazeWidth();
+	}
+
+	private int getMazeHeight() {
+		return answerSnapshot != null ? answerSnapshot.getHeight() : arguments.getMazeHeight();
+	}
+
+	private int getWordLength() {
+		if (questionBank != null) {
+			return questionBank.getAnswerLength();
+		}
+		return solutionPath != null ? solutionPath.size() : 0;
+	}
+
+	public void loadQuestions() throws IOException {
+		phase("load", () -> {
+			readQuestions();
+
+			// a cache hit skips every step up to writing the outputs
+			if (cache != null) {
+				MazeFile entry = cache.load(cacheKey);
+				if (entry != null) {
+					restore(entry);
+					cached = true;
+				}
+			}
+
+			if (!cached && arguments.getIncrementalMazeFile() != null &&
+					arguments.getIncrementalMazeFile().exists()) {
+				loadPreviousMaze();
+			}
+		});
+	}
+
+	private void readQuestions() throws IOException {
+		QuestionCSVReader questionReader =
+				new QuestionCSVReader(arguments.getInputCSV().toPath(), arguments.getInputCharset());
+		// a watched csv changes under the job, so the questions it was loaded with are collected as the answers
+		// are read, every other job streams them from the file on each pass instead of holding them
+		List<String> watchedQuestions = arguments.isWatch() ? Lists.newArrayList() : null;
+		QuestionBank newQuestionBank = questionReader.readAnswers(executor, watchedQuestions);
+		questions = watchedQuestions != null ? watchedQuestions : questionReader.questions();
+		questionBank = newQuestionBank;
+
+		if (cache != null) {
+			try {
+				cacheKey = MazeCache.key(arguments, seed, questions, questionBank);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	private void loadPreviousMaze() {
+		try {
+			previousMaze = MazeFile.read(arguments.getIncrementalMazeFile().toPath());
+		} catch (IOException e) {
+			System.err.println("Ignoring unreadable previous maze: " + arguments.getIncrementalMazeFile());
+			return;
+		}
+
+		// the old maze is only reused when it was generated with the same layout
+		WordMazeSnapshot walls = previousMaze.getPuzzle();
+		if (walls.getWidth() != arguments.getMazeWidth() || walls.getHeight() != arguments.getMazeHeight() ||
+				walls.getBoxWidth() != arguments.getBoxWidth() || walls.getBoxHeight() != arguments.getBoxHeight() ||
+				previousMaze.getStartPosition() != arguments.getStartPosition() ||
+				previousMaze.getEndPosition() != arguments.getEndPosition()) {
+			previousMaze = null;
+		}
+	}
+
+	public boolean isIncremental() {
+		return previousMaze != null;
+	}
+
+	public void loadSavedMaze() throws IOException {
+		phase("load", () -> {
+			MazeFile saved = MazeFile.read(arguments.getRenderMazeFile().toPath());
+			questions = saved.getQuestions();
+			restore(saved);
+		});
+	}
+
+	private void restore(MazeFile saved) {
+		answerSnapshot = saved.getAnswer();
+		puzzleSnapshot = saved.getPuzzle();
+		solutionPath = saved.getSolutionPath();
+	}
+
+	private MazeFile toMazeFile() {
+		return new MazeFile(puzzleSnapshot, solutionPath, arguments.getStartPosition(), arguments.getEndPosition(),
+				Lists.newArrayList(questions));
+	}
+
+	public Change reloadQuestions() throws IOException {
+		Iterable<String> oldQuestions = questions;
+		QuestionBank oldQuestionBank = questionBank;
+		readQuestions();
+		cached = false;
+
+		if (!questionBank.getAnswers().equals(oldQuestionBank.getAnswers()) ||
+				!questionBank.getAlternateAnswers().equals(oldQuestionBank.getAlternateAnswers())) {
+			return Change.ANSWERS;
+		}
+		return questions.equals(oldQuestions) ? Change.NONE : Change.QUESTIONS;
+	}
+
+	public void resolveChangedAnswers() throws UnsolvableException {
+		// the current maze is kept and only the words after the first changed letter are searched again
+		previousMaze = toMazeFile();
+		generateMaze();
+		solve();
+	}
+
+	public boolean isCached() {
+		return cached;
+	}
+
+	public void generateMaze() {
+		if (cached) {
+			return;
+		}
+		phase("generate", () -> {
+			carveMaze();
+		});
+	}
+
+	private void carveMaze() {
+		if (previousMaze != null) {
+			// stays set, a fresh maze after a failed re-solve is carved from a later split than a plain run's
+			reusedMaze = true;
+			maze = new WordMaze(random.split(), arguments.getMazeWidth(), arguments.getMazeHeight(),
+					arguments.getBoxWidth(), arguments.getBoxHeight(), arguments.getStartPosition(),
+					arguments.getEndPosition());
+			maze.restore(previousMaze.getAnswer());
+			return;
+		}
+
+		// pooled mazes are carved from the first split of their seed, so taking over that seed keeps the job repeatable
+		MazePool.PooledMaze pooled = pool != null && arguments.getSeed() == null ? pool.take(arguments) : null;
+		if (pooled != null) {
+			seed = pooled.getSeed();
+			random = new MazeRandom(seed);
+			random.split();
+			maze = pooled.getMaze();
+			if (cache != null) {
+				cacheKey = MazeCache.key(arguments, seed, questions, questionBank);
+			}
+			return;
+		}
+
+		maze = new WordMaze(random.split(), arguments.getMazeWidth(), arguments.getMazeHeight(),
+				arguments.getBoxWidth(), arguments.getBoxHeight(), arguments.getStartPosition(),
+				arguments.getEndPosition());
+		maze.generateMaze(arguments.getBarrierRemovals());
+	}
+
+	public void solve() throws UnsolvableException {
+		if (cached) {
+			return;
+		}
+		try {
+			phase("solve", () -> {
+				if (previousMaze != null) {
+					// a failed re-solve falls back to a fresh maze the next time one is generated
+					List<Vec2i> previousPath = previousMaze.getSolutionPath();
+					previousMaze = null;
+					alternateLocations = maze.pathWordString(questionBank.getAnswers(), previousPath);
+				} else {
+					alternateLocations = maze.pathWordString(questionBank.getAnswers());
+				}
+			});
+		} finally {
+			profile.addSearch("solve", maze.takeStats(), getMazeWidth(), getMazeHeight(), getWordLength());
+		}
+		answerSnapshot = maze.snapshot();
+		solutionPath = maze.getSolutionPath();
+	}
+
+	public void addAlternateAnswers() {
+		if (cached) {
+			return;
+		}
+		phase("alternates", () -> {
+			maze.addAlternateAnswers(alternateLocations, questionBank.getAlternateAnswers());
+		});
+		profile.addSearch("alternates", maze.takeStats(), getMazeWidth(), getMazeHeight(), getWordLength());
+	}
+
+	public void fillRandomCharacters() {
+		if (cached) {
+			return;
+		}
+		phase("fill", () -> {
+			maze.fillRandomCharacters(arguments.getAlphabet());
+			puzzleSnapshot = maze.snapshot();
+		});
+		if (isCacheable()) {
+			cache.storeMaze(cacheKey, toMazeFile());
+		}
+	}
+
+	private boolean isCacheable() {
+		// cache keys only hold the seed and questions, so a maze carried over from an earlier run would be handed
+		// to later runs that should get the maze their seed makes
+		return cache != null && !reusedMaze;
+	}
+
+	public void saveMaze() throws IOException {
+		if (arguments.getOutputMazeFile() == null && arguments.getIncrementalMazeFile() == null) {
+			return;
+		}
+		phase("save", () -> {
+			if (arguments.getOutputMazeFile() != null) {
+				writeWhole(arguments.getOutputMazeFile(), toMazeFile()::write);
+			}
+			if (arguments.getIncrementalMazeFile() != null) {
+				writeWhole(arguments.getIncrementalMazeFile(), toMazeFile()::write);
+			}
+		});
+	}
+
+	public MazeAnalysis analyze() {
+		return MazeAnalysis.analyze(answerSnapshot, solutionPath);
+	}
+
+	public void writeStats() throws IOException {
+		if (arguments.getOutputStats() != null) {
+			phase("stats", () -> {
+				writeWhole(arguments.getOutputStats(), analyze()::writeJSON);
+			});
+		}
+	}
+
+	public void writeProfile() throws IOException {
+		if (arguments.getOutputProfile() != null) {
+			writeWhole(arguments.getOutputProfile(), profile::writeJSON);
+		}
+	}
+
+	public void writeAnswerPDF() throws IOException {
+		if (arguments.getAnswerPDF() != null) {
+			phase("answer-pdf", () -> {
+				writePDF(answerSnapshot, MazeCache.Document.ANSWER, arguments.getAnswerPDF());
+			});
+		}
+	}
+
+	public void writePuzzlePDF() throws IOException {
+		if (arguments.getOutputPDF() != null) {
+			phase("puzzle-pdf", () -> {
+				writePDF(puzzleSnapshot, MazeCache.Document.PUZZLE, arguments.getOutputPDF());
+			});
+		}
+	}
+
+	private void writePDF(WordMazeSnapshot snapshot, MazeCache.Document document, File output) throws IOException {
+		writeWhole(output, file -> {
+			if (isCacheable() && cache.copyPDF(cacheKey, document, file)) {
+				return;
+			}
+			writer.writePDF(snapshot, questions, file.toFile());
+			if (isCacheable() && cache.isStoringPDFs()) {
+				cache.storePDF(cacheKey, document, file);
+			}
+		});
+	}
+
+	public void writeAnswerPDF(OutputStream output) throws IOException {
+		phase("answer-pdf", () -> {
+			if (!isCacheable() || !cache.copyPDF(cacheKey, MazeCache.Document.ANSWER, output)) {
+				writer.writePDF(answerSnapshot, questions, output);
+			}
+		});
+	}
+
+	public void writePuzzlePDF(OutputStream output) throws IOException {
+		phase("puzzle-pdf", () -> {
+			if (!isCacheable() || !cache.copyPDF(cacheKey, MazeCache.Document.PUZZLE, output)) {
+				writer.writePDF(puzzleSnapshot, questions, output);
+			}
+		});
+	}
+
+	public void appendAnswer(PDDocument document, GlyphWidthCache glyphWidths) throws IOException {
+		phase("answer-pdf", () -> {
+			writer.appendPuzzle(document, glyphWidths, answerSnapshot, questions);
+		});
+	}
+
+	public void appendPuzzle(PDDocument document, GlyphWidthCache glyphWidths) throws IOException {
+		phase("puzzle-pdf", () -> {
+			writer.appendPuzzle(document, glyphWidths, puzzleSnapshot, questions);
+		});
+	}
+
+	public void writePNG() throws IOException {
+		if (arguments.getOutputPNG() != null) {
+			phase("png", () -> {
+				writeWhole(arguments.getOutputPNG(),
+						file -> writer.writePNG(puzzleSnapshot, file.toFile(), arguments.getPngScale()));
+			});
+		}
+	}
+
+	public void writeSVG() throws IOException {
+		if (arguments.getOutputSVG() != null) {
+			phase("svg", () -> {
+				writeWhole(arguments.getOutputSVG(), file -> writer.writeSVG(puzzleSnapshot, file.toFile()));
+			});
+		}
+	}
+
+	private static void writeWhole(File output, OutputAction action) throws IOException {
+		// outputs are written next to their final path and renamed into place, so whoever reads them, or a
+		// spool worker that lost its lease and is still writing, never leaves a half written file behind
+		Path target = output.toPath().toAbsolutePath();
+		// the writers create the scratch file themselves, so the output keeps the usual permissions
+		Path temp = target.resolveSibling(
+				target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMP_SUFFIX);
+		try {
+			action.write(temp);
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	@FunctionalInterface
+	private interface OutputAction {
+		void write(Path file) throws IOException;
+	}
+
+	public enum Change {
+		NONE,
+		QUESTIONS,
+		ANSWERS
+	}
+}
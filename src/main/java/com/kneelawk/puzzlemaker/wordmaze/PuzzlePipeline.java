@@ -0,0 +1,221 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class PuzzlePipeline {
+	public static final int STAGE_COUNT = 5;
+	private static final int MAX_SOLVE_ATTEMPTS = 3;
+	private static final Work END = new Work(-1, null);
+
+	private final ExecutorService executor;
+	private final int[] stageThreads;
+	private final int queueSize;
+	private final WorkbookWriter workbook;
+	private final MazeCache cache;
+	private final long seed;
+	private final AtomicInteger failures = new AtomicInteger();
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	public PuzzlePipeline(ExecutorService executor, int[] stageThreads, int queueSize, WorkbookWriter workbook,
+						  MazeCache cache, long seed) {
+		if (stageThreads.length != STAGE_COUNT) {
+			throw new IllegalArgumentException("Expected thread counts for " + STAGE_COUNT + " stages");
+		}
+		this.executor = executor;
+		this.stageThreads = stageThreads;
+		this.queueSize = queueSize;
+		this.workbook = workbook;
+		this.cache = cache;
+		this.seed = seed;
+	}
+
+	public int run(List<WordMazeGeneratorArguments> jobs) throws InterruptedException {
+		// stages are built back to front so each one knows where to hand its work
+		Stage render = new Stage("render", stageThreads[4], null, job -> {
+			job.writeAnswerPDF();
+			job.writePuzzlePDF();
+			job.writePNG();
+			job.writeSVG();
+			job.saveMaze();
+			job.writeStats();
+		});
+		Stage fill = new Stage("fill", stageThreads[3], render, job -> {
+			job.addAlternateAnswers();
+			job.fillRandomCharacters();
+		});
+		Stage solve = new Stage("solve", stageThreads[2], fill, job -> {
+			for (int attempt = 1; ; attempt++) {
+				try {
+					job.solve();
+					return;
+				} catch (UnsolvableException e) {
+					if (attempt >= MAX_SOLVE_ATTEMPTS) {
+						throw e;
+					}
+					job.generateMaze();
+				}
+			}
+		});
+		Stage generate = new Stage("generate", stageThreads[1], solve, PuzzleJob::generateMaze);
+		Stage parse = new Stage("parse", stageThreads[0], generate, PuzzleJob::loadQuestions);
+
+		List<Stage> stages = Lists.newArrayList(parse, generate, solve, fill, render);
+		for (Stage stage : stages) {
+			stage.start();
+		}
+
+		// a workbook holds back new jobs while it waits on a slow one, no more are let in than the stages can hold
+		int window = STAGE_COUNT * queueSize;
+		for (int threads : stageThreads) {
+			window += threads;
+		}
+
+		// job seeds are drawn in manifest order, so they don't depend on how the stages are threaded
+		MazeRandom seeds = new MazeRandom(seed);
+		for (int i = 0; i < jobs.size(); i++) {
+			if (workbook != null) {
+				workbook.awaitTurn(i, window);
+			}
+			parse.input.put(new Work(i, new PuzzleJob(jobs.get(i), executor, cache, seeds.nextLong())));
+		}
+		parse.end();
+
+		finished.await();
+		return failures.get();
+	}
+
+	private void complete(Work work) {
+		if (workbook == null) {
+			report(work);
+			return;
+		}
+
+		// the workbook binds puzzles in manifest order, so failed ones still have to release their slot, and each
+		// puzzle is only reported once it has actually been bound
+		Consumer<Throwable> bound = failure -> {
+			if (work.failure == null) {
+				work.failure = failure;
+			}
+			report(work);
+		};
+		if (work.failure == null) {
+			workbook.add(work.index, work.job, bound);
+		} else {
+			workbook.skip(work.index, bound);
+		}
+	}
+
+	private void report(Work work) {
+		// written last so the profile also has the time spent adding the puzzle to the workbook
+		if (work.failure == null) {
+			try {
+				work.job.writeProfile();
+			} catch (Throwable e) {
+				work.failure = e;
+			}
+		}
+
+		File output = work.job.getArguments().getOutputPDF();
+		String name = output != null ? output.toString() : "#" + (work.index + 1);
+		if (work.failure == null) {
+			System.out.println("Finished puzzle: " + name + " (seed " + work.job.getSeed() + ")");
+		} else {
+			failures.incrementAndGet();
+			System.err.println("Failed puzzle: " + name + " (" + work.failure + ")");
+		}
+	}
+
+	private class Stage {
+		final String name;
+		final int threads;
+		final Stage next;
+		final StageAction action;
+		final BlockingQueue<Work> input;
+		final AtomicInteger running;
+
+		Stage(String name, int threads, Stage next, StageAction action) {
+			this.name = name;
+			this.threads = threads;
+			this.next = next;
+			this.action = action;
+			input = new ArrayBlockingQueue<>(queueSize);
+			running = new AtomicInteger(threads);
+		}
+
+		void start() {
+			for (int i = 0; i < threads; i++) {
+				Thread thread = new Thread(this::work, "puzzle-" + name + "-" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		void end() throws InterruptedException {
+			for (int i = 0; i < threads; i++) {
+				input.put(END);
+			}
+		}
+
+		void work() {
+			try {
+				while (true) {
+					Work work = input.take();
+					if (work == END) {
+						// the last worker out tells the next stage there is nothing more coming
+						if (running.decrementAndGet() == 0) {
+							if (next == null) {
+								finished.countDown();
+							} else {
+								next.end();
+							}
+						}
+						return;
+					}
+
+					// errors like a solver stack overflow fail only their own puzzle, a dead stage thread would
+					// never hand on its work or its end marker and the batch would wait forever
+					if (work.failure == null) {
+						try {
+							action.apply(work.job);
+						} catch (Throwable e) {
+							work.failure = e;
+						}
+					}
+
+					if (next == null) {
+						complete(work);
+					} else {
+						next.input.put(work);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface StageAction {
+		void apply(PuzzleJob job) throws Exception;
+	}
+
+	private static class Work {
+		final int index;
+		final PuzzleJob job;
+		Throwable failure;
+
+		Work(int index, PuzzleJob job) {
+			this.index = index;
+			this.job = job;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class PuzzleServer {
+	private static final int MAX_SOLVE_ATTEMPTS = 3;
+	private static final long MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+	private static final Map<String, String> PARAMETER_OPTIONS =
+			ImmutableMap.<String, String>builder().put("width", "--width").put("height", "--height")
+					.put("boxWidth", "--box-width").put("boxHeight", "--box-height").put("start", "--start")
+					.put("end", "--end").put("alphabet", "--alphabet").put("barrierRemovals", "--barrier-removals")
+					.put("posterOverlap", "--poster-overlap").put("seed", "--seed").build();
+
+	private final ExecutorService executor;
+	private final MazeCache cache;
+	private final MazePool pool;
+	private final int maxRequests;
+	private final Semaphore permits;
+	private HttpServer server;
+	private ExecutorService requestExecutor;
+
+	public PuzzleServer(ExecutorService executor, MazeCache cache, MazePool pool, int maxRequests) {
+		this.executor = executor;
+		this.cache = cache;
+		this.pool = pool;
+		this.maxRequests = maxRequests;
+		permits = new Semaphore(maxRequests, true);
+	}
+
+	public void start(int port) throws IOException {
+		// the font and pdf classes are loaded once here instead of by the first request
+		MazeFonts.warmUp();
+		if (pool != null) {
+			pool.start();
+		}
+
+		requestExecutor = newRequestExecutor(maxRequests);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/puzzle", this::handlePuzzle);
+		server.setExecutor(requestExecutor);
+		server.start();
+	}
+
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	public void stop(int delay) {
+		server.stop(delay);
+		requestExecutor.shutdown();
+		if (pool != null) {
+			pool.stop();
+		}
+	}
+
+	private static ExecutorService newRequestExecutor(int maxRequests) {
+		// newer jdks can park waiting requests on virtual threads, older ones get a fixed pool
+		try {
+			Method newVirtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) newVirtualExecutor.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(maxRequests);
+		}
+	}
+
+	private void handlePuzzle(HttpExchange exchange) throws IOException {
+		Path input = null;
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendError(exchange, 405, "Puzzles must be requested with POST.");
+				return;
+			}
+
+			// maze parameters come from the query string and go through the same checks as the command line
+			List<String> args = Lists.newArrayList();
+			String query = exchange.getRequestURI().getRawQuery();
+			if (query != null && !query.isEmpty()) {
+				for (String parameter : query.split("&")) {
+					int equalsIndex = parameter.indexOf('=');
+					String name, value;
+					try {
+						name = decode(equalsIndex < 0 ? parameter : parameter.substring(0, equalsIndex));
+						value = equalsIndex < 0 ? "" : decode(parameter.substring(equalsIndex + 1));
+					} catch (IllegalArgumentException e) {
+						sendError(exchange, 400, "Malformed query parameter: " + parameter);
+						return;
+					}
+					if ("poster".equals(name)) {
+						if (!"false".equals(value)) {
+							args.add("--poster");
+						}
+					} else if (PARAMETER_OPTIONS.containsKey(name)) {
+						args.add(PARAMETER_OPTIONS.get(name));
+						args.add(value);
+					} else {
+						sendError(exchange, 400, "Unknown parameter: " + name);
+						return;
+					}
+				}
+			}
+
+			String charset = contentCharset(exchange.getRequestHeaders().getFirst("Content-Type"));
+			if (charset != null) {
+				args.add("--input-charset");
+				args.add(charset);
+			}
+
+			// the question csv is read more than once, so the body is spooled to a temporary file
+			input = Files.createTempFile("puzzle-request", ".csv");
+			if (!copyBody(exchange.getRequestBody(), input)) {
+				sendError(exchange, 413, "Question CSV must be smaller than " + MAX_REQUEST_SIZE + " bytes.");
+				return;
+			}
+			args.add("--input");
+			args.add(input.toString());
+
+			WordMazeGeneratorArguments arguments = new WordMazeGeneratorArguments();
+			try {
+				arguments.parseRequestArguments(args.toArray(new String[0]));
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, e.getMessage());
+				return;
+			}
+
+			permits.acquire();
+			try {
+				writePuzzle(exchange, new PuzzleJob(arguments, executor, cache, pool, MazeRandom.newSeed()));
+			} finally {
+				permits.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			sendError(exchange, 503, "Server is shutting down.");
+		} catch (RuntimeException | Error e) {
+			// anything the puzzle steps didn't expect still gets the client a status instead of a dropped connection
+			System.err.println("Unable to make requested puzzle: " + e);
+			if (exchange.getResponseCode() == -1) {
+				sendError(exchange, 500, "Unable to make puzzle: " + e);
+			}
+		} finally {
+			if (input != null) {
+				Files.deleteIfExists(input);
+			}
+			exchange.close();
+		}
+	}
+
+	private void writePuzzle(HttpExchange exchange, PuzzleJob job) throws IOException {
+		try {
+			job.loadQuestions();
+		} catch (IOException e) {
+			sendError(exchange, 400, "Unable to read question CSV: " + e.getMessage());
+			return;
+		}
+
+		job.generateMaze();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				job.solve();
+				break;
+			} catch (UnsolvableException e) {
+				if (attempt >= MAX_SOLVE_ATTEMPTS) {
+					sendError(exchange, 422, e.getMessage());
+					return;
+				}
+				job.generateMaze();
+			}
+		}
+		job.addAlternateAnswers();
+		job.fillRandomCharacters();
+
+		// both pdfs are streamed straight into the response as they are saved, followed by the maze's stats
+		exchange.getResponseHeaders().set("Content-Type", "application/zip");
+		exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"puzzle.zip\"");
+		exchange.getResponseHeaders().set("X-Puzzle-Seed", String.valueOf(job.getSeed()));
+		exchange.sendResponseHeaders(200, 0);
+		try (ZipOutputStream zip = new ZipOutputStream(exchange.getResponseBody())) {
+			// saving a pdf closes its stream, which must not end the whole zip
+			zip.putNextEntry(new ZipEntry("puzzle.pdf"));
+			job.writePuzzlePDF(new CloseShieldOutputStream(zip));
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("answer.pdf"));
+			job.writeAnswerPDF(new CloseShieldOutputStream(zip));
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("stats.json"));
+			zip.write(job.analyze().toJSON().getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+	}
+
+	private static boolean copyBody(InputStream body, Path output) throws IOException {
+		try (InputStream in = body; OutputStream out = Files.newOutputStream(output)) {
+			byte[] buffer = new byte[8192];
+			long total = 0;
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				total += read;
+				if (total > MAX_REQUEST_SIZE) {
+					return false;
+				}
+				out.write(buffer, 0, read);
+			}
+		}
+		return true;
+	}
+
+	private static String contentCharset(String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		for (String part : contentType.split(";")) {
+			part = part.trim();
+			if (part.regionMatches(true, 0, "charset=", 0, 8)) {
+				return part.substring(8).replace("\"", "");
+			}
+		}
+		return null;
+	}
+
+	private static String decode(String value) {
+		return URLDecoder.decode(value, StandardCharsets.UTF_8);
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class PuzzleSpool {
+	private static final String JOB_SUFFIX = ".job";
+	private static final String DONE_SUFFIX = ".done";
+	private static final String ERROR_SUFFIX = ".error";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final char CLAIM_SEPARATOR = '@';
+	private static final int MAX_ATTEMPTS = 3;
+
+	private final Path pending;
+	private final Path claimed;
+	private final Path done;
+	private final Path failed;
+	private final long leaseMillis;
+	private final String worker;
+	private final Map<Path, Observation> observations = Maps.newHashMap();
+
+	public PuzzleSpool(Path directory, long leaseMillis) throws IOException {
+		pending = Files.createDirectories(directory.resolve("pending"));
+		claimed = Files.createDirectories(directory.resolve("claimed"));
+		done = Files.createDirectories(directory.resolve("done"));
+		failed = Files.createDirectories(directory.resolve("failed"));
+		this.leaseMillis = leaseMillis;
+		worker = workerName();
+	}
+
+	private static String workerName() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			host = "localhost";
+		}
+		return host + "-" + ProcessHandle.current().pid();
+	}
+
+	public String getWorker() {
+		return worker;
+	}
+
+	public long getLeaseMillis() {
+		return leaseMillis;
+	}
+
+	public int submit(String batchName, List<String[]> jobs, long seed, Path directory) throws IOException {
+		// job seeds are drawn in manifest order exactly like a batch run's, so both make the same puzzles
+		MazeRandom seeds = new MazeRandom(seed);
+		int submitted = 0;
+		for (int i = 0; i < jobs.size(); i++) {
+			long jobSeed = seeds.nextLong();
+			String name = String.format("%s-%04d", batchName, i + 1);
+			if (exists(name)) {
+				continue;
+			}
+
+			Properties job = new Properties();
+			job.setProperty("options", BatchManifest.join(jobs.get(i)));
+			job.setProperty("directory", directory.toString());
+			job.setProperty("seed", Long.toString(jobSeed));
+			job.setProperty("attempts", "0");
+			Path temp = Files.createTempFile(pending, name, TEMP_SUFFIX);
+			write(job, temp);
+			commit(temp, pending.resolve(name + JOB_SUFFIX));
+			submitted++;
+		}
+		return submitted;
+	}
+
+	private boolean exists(String name) throws IOException {
+		// submitting the same manifest again only adds the jobs that were never submitted
+		if (Files.exists(pending.resolve(name + JOB_SUFFIX)) || Files.exists(done.resolve(name + DONE_SUFFIX)) ||
+				Files.exists(failed.resolve(name + JOB_SUFFIX))) {
+			return true;
+		}
+		for (Path job : list(claimed)) {
+			if (claimNameOf(job).equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Claim claim() throws IOException {
+		while (true) {
+			for (Path job : list(pending)) {
+				// every claim gets a file name of its own, so a worker that stalled past its lease can't renew, finish
+				// or fail the claim of whoever took the job over after it
+				String token = worker + "-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+				Path target = claimed.resolve(nameOf(job) + CLAIM_SEPARATOR + token + JOB_SUFFIX);
+				try {
+					// whichever worker renames the job first owns it, the others see it gone
+					Files.move(job, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (NoSuchFileException | FileAlreadyExistsException e) {
+					continue;
+				}
+				Claim claim = start(target);
+				if (claim != null) {
+					return claim;
+				}
+			}
+
+			if (!reclaimExpired()) {
+				return null;
+			}
+		}
+	}
+
+	private Claim start(Path job) throws IOException {
+		String name = claimNameOf(job);
+		if (Files.exists(done.resolve(name + DONE_SUFFIX))) {
+			// a worker finished it but died before it could drop its claim
+			Files.deleteIfExists(job);
+			return null;
+		}
+
+		Properties properties;
+		try {
+			properties = read(job);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		int attempts = Integer.parseInt(properties.getProperty("attempts", "0")) + 1;
+		if (attempts > MAX_ATTEMPTS) {
+			fail(job, name, "Abandoned by " + MAX_ATTEMPTS + " workers that stopped renewing their lease");
+			return null;
+		}
+
+		// rewriting the claim also gives it a fresh modification time, a rename keeps the old one
+		properties.setProperty("attempts", Integer.toString(attempts));
+		properties.setProperty("worker", worker);
+		Path temp = Files.createTempFile(claimed, name, TEMP_SUFFIX);
+		write(properties, temp);
+		commit(temp, job);
+
+		return new Claim(name, job, BatchManifest.tokenize(properties.getProperty("options")),
+				Path.of(properties.getProperty("directory")), Long.parseLong(properties.getProperty("seed")), attempts);
+	}
+
+	private boolean reclaimExpired() throws IOException {
+		// leases are timed by watching a claim's modification time stop changing on this worker's own clock,
+		// so workers on machines with skewed clocks never see each other's leases as expired too early
+		long now = System.nanoTime();
+		boolean reclaimed = false;
+		Map<Path, Observation> seen = Maps.newHashMap();
+		for (Path job : list(claimed)) {
+			FileTime modified;
+			try {
+				modified = Files.getLastModifiedTime(job);
+			} catch (NoSuchFileException e) {
+				continue;
+			}
+
+			Observation observation = observations.get(job);
+			if (observation == null || !observation.modified.equals(modified)) {
+				seen.put(job, new Observation(modified, now));
+			} else if (now - observation.since > leaseMillis * 1000000) {
+				try {
+					Files.move(job, pending.resolve(claimNameOf(job) + JOB_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+					System.out.println("Reclaimed job: " + claimNameOf(job) + " (its lease expired)");
+					reclaimed = true;
+				} catch (NoSuchFileException | FileAlreadyExistsException e) {
+					// another worker reclaimed or finished it first
+				}
+			} else {
+				seen.put(job, observation);
+			}
+		}
+		observations.clear();
+		observations.putAll(seen);
+		return reclaimed;
+	}
+
+	public boolean isIdle() throws IOException {
+		return list(pending).isEmpty() && list(claimed).isEmpty();
+	}
+
+	public boolean complete(Claim claim, long seed) throws IOException {
+		if (Files.notExists(claim.path)) {
+			claim.lost = true;
+			return false;
+		}
+
+		// the marker goes first, a claim that outlives a crash here is dropped by whoever reclaims it
+		Properties marker = new Properties();
+		marker.setProperty("worker", worker);
+		marker.setProperty("seed", Long.toString(seed));
+		marker.setProperty("attempts", Integer.toString(claim.attempts));
+		Path temp = Files.createTempFile(done, claim.name, TEMP_SUFFIX);
+		write(marker, temp);
+		commit(temp, done.resolve(claim.name + DONE_SUFFIX));
+		Files.deleteIfExists(claim.path);
+		return true;
+	}
+
+	public boolean fail(Claim claim, String error) throws IOException {
+		if (!fail(claim.path, claim.name, error)) {
+			claim.lost = true;
+			return false;
+		}
+		return true;
+	}
+
+	private boolean fail(Path job, String name, String error) throws IOException {
+		try {
+			Files.move(job, failed.resolve(name + JOB_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		} catch (NoSuchFileException e) {
+			// it was reclaimed in the meantime, whoever owns it now decides how it ends
+			return false;
+		}
+		Path temp = Files.createTempFile(failed, name, TEMP_SUFFIX);
+		Files.writeString(temp, worker + ": " + error + System.lineSeparator(), StandardCharsets.UTF_8);
+		commit(temp, failed.resolve(name + ERROR_SUFFIX));
+		return true;
+	}
+
+	private static List<Path> list(Path directory) throws IOException {
+		List<Path> jobs = Lists.newArrayList();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + JOB_SUFFIX)) {
+			for (Path file : files) {
+				jobs.add(file);
+			}
+		}
+		// every worker walks the jobs in the same order, so a batch still finishes roughly front to back
+		jobs.sort(null);
+		return jobs;
+	}
+
+	private static String nameOf(Path job) {
+		String fileName = job.getFileName().toString();
+		return fileName.substring(0, fileName.length() - JOB_SUFFIX.length());
+	}
+
+	private static String claimNameOf(Path job) {
+		String name = nameOf(job);
+		int separator = name.lastIndexOf(CLAIM_SEPARATOR);
+		return separator < 0 ? name : name.substring(0, separator);
+	}
+
+	private static Properties read(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			Properties properties = new Properties();
+			properties.load(reader);
+			return properties;
+		}
+	}
+
+	private static void write(Properties properties, Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+	}
+
+	private static void commit(Path temp, Path target) throws IOException {
+		// files only ever appear whole, so other workers sharing the directory never read a partial one
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static class Observation {
+		final FileTime modified;
+		final long since;
+
+		Observation(FileTime modified, long since) {
+			this.modified = modified;
+			this.since = since;
+		}
+	}
+
+	public static class Claim {
+		private final String name;
+		private final Path path;
+		private final String[] options;
+		private final Path directory;
+		private final long seed;
+		private final int attempts;
+		private volatile boolean lost;
+
+		private Claim(String name, Path path, String[] options, Path directory, long seed, int attempts) {
+			this.name = name;
+			this.path = path;
+			this.options = options;
+			this.directory = directory;
+			this.seed = seed;
+			this.attempts = attempts;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String[] getOptions() {
+			return options;
+		}
+
+		public Path getDirectory() {
+			return directory;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public boolean isLost() {
+			return lost;
+		}
+
+		public void renew() {
+			if (lost) {
+				return;
+			}
+			try {
+				Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			} catch (NoSuchFileException e) {
+				// another worker decided this one was dead and took the job back
+				lost = true;
+			} catch (IOException e) {
+				System.err.println("Unable to renew lease on job: " + name + " (" + e.getMessage() + ")");
+			}
+		}
+	}
+}
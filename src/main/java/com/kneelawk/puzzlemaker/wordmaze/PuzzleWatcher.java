@@ -0,0 +1,128 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+public class PuzzleWatcher {
+	private static final long SETTLE_MILLIS = 200;
+	private static final int MAX_SOLVE_ATTEMPTS = 3;
+
+	private final PuzzleJob job;
+	private final Path input;
+	private boolean stale;
+
+	public PuzzleWatcher(PuzzleJob job) {
+		this.job = job;
+		input = job.getArguments().getInputCSV().toPath();
+	}
+
+	public void run() throws IOException, InterruptedException {
+		try (WatchService watcher = input.getFileSystem().newWatchService()) {
+			// editors often save by replacing the file, so its directory is watched instead of the file itself
+			input.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			System.out.println("Watching for changes: " + input);
+
+			while (true) {
+				WatchKey key = watcher.take();
+				boolean changed = false;
+
+				// one save can show up as several events, so they are collected until the file settles
+				do {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+								input.getFileName().equals(event.context())) {
+							changed = true;
+						}
+					}
+					key.reset();
+				} while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+
+				if (changed) {
+					update();
+				}
+			}
+		}
+	}
+
+	private void update() {
+		PuzzleJob.Change change;
+		try {
+			change = job.reloadQuestions();
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Unable to load CSV file: " + input + " (" + e.getMessage() + ")");
+			return;
+		}
+
+		// after a failed update the outputs no longer match what was loaded, so everything is redone
+		if (stale) {
+			change = PuzzleJob.Change.ANSWERS;
+		}
+
+		try {
+			switch (change) {
+				case NONE:
+					System.out.println("Nothing that affects the puzzle changed.");
+					return;
+				case QUESTIONS:
+					// the maze is untouched, only the pdfs carry the question pages
+					System.out.println("Questions changed, rewriting pdfs...");
+					job.writeAnswerPDF();
+					job.writePuzzlePDF();
+					break;
+				case ANSWERS:
+					System.out.println("Answers changed, solving maze again...");
+					resolve();
+					job.addAlternateAnswers();
+					job.fillRandomCharacters();
+					System.out.println("Writing outputs...");
+					job.writeAnswerPDF();
+					job.writePuzzlePDF();
+					job.writePNG();
+					job.writeSVG();
+					job.saveMaze();
+					job.writeStats();
+					break;
+			}
+			stale = false;
+			System.out.println("Done.");
+		} catch (UnsolvableException e) {
+			stale = true;
+			System.err.println("Unable to solve a maze for the changed answers, keeping the previous outputs.");
+		} catch (IOException | UncheckedIOException e) {
+			stale = true;
+			System.err.println("Unable to write outputs: " + e.getMessage());
+		} catch (RuntimeException | StackOverflowError e) {
+			// one bad save, like an answer string too long for the solver's stack, shouldn't end the session
+			stale = true;
+			System.err.println("Unable to update the puzzle, keeping the previous outputs (" + e + ")");
+		}
+	}
+
+	private void resolve() throws UnsolvableException {
+		try {
+			job.resolveChangedAnswers();
+			return;
+		} catch (UnsolvableException e) {
+			System.out.println("The changed answers don't fit the current maze, generating a new one...");
+		}
+
+		for (int attempt = 1; ; attempt++) {
+			job.generateMaze();
+			try {
+				job.solve();
+				return;
+			} catch (UnsolvableException e) {
+				if (attempt >= MAX_SOLVE_ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+
+public class PuzzleWriter {
+	private final ExecutorService executor;
+	private final PosterPDFWriter poster;
+
+	public PuzzleWriter(ExecutorService executor, PosterPDFWriter poster) {
+		this.executor = executor;
+		this.poster = poster;
+	}
+
+	public void writeSVG(WordMazeSnapshot maze, File output) throws IOException {
+		new SVGMazeWriter().write(maze, output.toPath());
+	}
+
+	public void writePNG(WordMazeSnapshot maze, File output, float scale) throws IOException {
+		new PNGMazeRenderer(executor, MazeFonts.getGraphicsFont()).write(maze, scale, output);
+	}
+
+	public void writePDF(WordMazeSnapshot maze, Iterable<String> questions, File output) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+			writePDF(maze, questions, out);
+		}
+	}
+
+	public void writePDF(WordMazeSnapshot maze, Iterable<String> questions, OutputStream output)
+			throws IOException {
+		// setup document
+		try (PDDocument document = new PDDocument()) {
+			// setup fonts
+			PDFont textFont = MazeFonts.loadTextFont(document);
+			GlyphWidthCache glyphWidths = new GlyphWidthCache(textFont);
+
+			appendPuzzle(document, glyphWidths, maze, questions);
+
+			// save the pdf
+			document.save(output);
+		}
+	}
+
+	public void appendPuzzle(PDDocument document, GlyphWidthCache glyphWidths, WordMazeSnapshot maze,
+							 Iterable<String> questions) throws IOException {
+		if (poster == null) {
+			writeMazePage(document, glyphWidths, maze);
+		} else {
+			poster.writePages(document, glyphWidths, maze);
+		}
+
+		// lay out the questions, writing each page as soon as it fills up
+		QuestionPageWriter questionWriter =
+				new QuestionPageWriter(document, glyphWidths, PDRectangle.A4, 12, 72, 72, 72, 72);
+		try {
+			Iterator<String> iterator = questions.iterator();
+			try {
+				while (iterator.hasNext()) {
+					questionWriter.addQuestion(iterator.next());
+				}
+			} finally {
+				QuestionCSVReader.close(iterator);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		questionWriter.finish();
+	}
+
+	private static void writeMazePage(PDDocument document, GlyphWidthCache glyphWidths, WordMazeSnapshot maze)
+			throws IOException {
+		int canvasWidth = maze.getBoxWidth() * maze.getWidth() + 80;
+		int canvasHeight = maze.getBoxHeight() * maze.getHeight() + 80;
+		PDFLetterRenderer letterRenderer = new PDFLetterRenderer(glyphWidths, maze.getBoxHeight() - 6f);
+
+		// setup page
+		PDPage mazePage = new PDPage(new PDRectangle(canvasWidth,
+				canvasHeight));
+		document.addPage(mazePage);
+
+		// setup content stream
+		PDPageContentStream mazeContentStream = new PDPageContentStream(document, mazePage);
+
+		// setup the maze canvas
+		PdfBoxGraphics2D graphics2D = new PdfBoxGraphics2D(document, canvasWidth, canvasHeight);
+
+		// draw the maze walls
+		graphics2D.translate(40, 40);
+		maze.drawWalls(graphics2D);
+		graphics2D.dispose();
+
+		// draw the maze canvas to the content stream
+		PDFormXObject xObject = graphics2D.getXFormObject();
+		mazeContentStream.drawForm(xObject);
+
+		// draw the letters directly to the content stream, one text run per row
+		letterRenderer.drawLetters(mazeContentStream, maze, 40, canvasHeight - 40);
+
+		// close the maze stream
+		mazeContentStream.close();
+	}
+}
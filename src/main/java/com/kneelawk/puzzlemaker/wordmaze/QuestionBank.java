@@ -0,0 +1,58 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+public class QuestionBank {
+	private final List<String> answers;
+	private final List<List<String>> alternateAnswers;
+	private final int answerLength;
+
+	public QuestionBank(List<String> answers, List<List<String>> alternateAnswers, int answerLength) {
+		this.answers = answers;
+		this.alternateAnswers = alternateAnswers;
+		this.answerLength = answerLength;
+	}
+
+	public static QuestionBank of(List<String> answers, List<List<String>> alternateAnswers) {
+		// answers from memory are cleaned up the same way the csv reader cleans up a file's
+		if (alternateAnswers.size() != answers.size()) {
+			throw new IllegalArgumentException("Every answer needs a list of alternate answers, even an empty one");
+		}
+		ImmutableList.Builder<String> normalized = ImmutableList.builder();
+		ImmutableList.Builder<List<String>> normalizedAlternates = ImmutableList.builder();
+		int answerLength = 0;
+		for (int i = 0; i < answers.size(); i++) {
+			String answer = normalize(answers.get(i));
+			normalized.add(answer);
+			answerLength += answer.length();
+
+			ImmutableList.Builder<String> alternates = ImmutableList.builder();
+			for (String alternate : alternateAnswers.get(i)) {
+				String normalizedAlternate = normalize(alternate);
+				if (!normalizedAlternate.isEmpty()) {
+					alternates.add(normalizedAlternate);
+				}
+			}
+			normalizedAlternates.add(alternates.build());
+		}
+		return new QuestionBank(normalized.build(), normalizedAlternates.build(), answerLength);
+	}
+
+	private static String normalize(String answer) {
+		return CaseUtils.trimToUpperCase(answer, 0, answer.length());
+	}
+
+	public List<String> getAnswers() {
+		return answers;
+	}
+
+	public List<List<String>> getAlternateAnswers() {
+		return alternateAnswers;
+	}
+
+	public int getAnswerLength() {
+		return answerLength;
+	}
+}
@@ -0,0 +1,216 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class QuestionCSVReader {
+	private static final int CHUNK_SIZE = 1024;
+
+	private final Path input;
+	private final Charset charset;
+
+	public QuestionCSVReader(Path input, Charset charset) {
+		this.input = input;
+		this.charset = charset;
+	}
+
+	private CSVParser open() throws IOException {
+		return CSVFormat.RFC4180.parse(Files.newBufferedReader(input, charset));
+	}
+
+	public QuestionBank readAnswers(ExecutorService executor) throws IOException {
+		return readAnswers(executor, null);
+	}
+
+	public QuestionBank readAnswers(ExecutorService executor, List<String> questions) throws IOException {
+		// callers that keep every question anyway collect them here instead of parsing the file a second time
+		int maxPending = Math.max(Runtime.getRuntime().availableProcessors() * 2, 2);
+		Deque<Future<NormalizedChunk>> pending = new ArrayDeque<>();
+		List<String> answers = Lists.newArrayList();
+		List<List<String>> alternateAnswers = Lists.newArrayList();
+		int answerLength = 0;
+
+		try (CSVParser parser = open()) {
+			// only the raw answer columns are kept, and only until their chunk has been normalized
+			String[] rawAnswers = new String[CHUNK_SIZE];
+			String[] rawAlternates = new String[CHUNK_SIZE];
+			int chunkSize = 0;
+			for (CSVRecord record : parser) {
+				if (questions != null) {
+					questions.add(record.get(0));
+				}
+				rawAnswers[chunkSize] = record.get(1);
+				rawAlternates[chunkSize] = record.size() > 2 ? record.get(2) : null;
+				chunkSize++;
+
+				if (chunkSize == CHUNK_SIZE) {
+					pending.add(submitChunk(executor, rawAnswers, rawAlternates, chunkSize));
+					rawAnswers = new String[CHUNK_SIZE];
+					rawAlternates = new String[CHUNK_SIZE];
+					chunkSize = 0;
+
+					if (pending.size() >= maxPending) {
+						answerLength += collectChunk(pending.remove(), answers, alternateAnswers);
+					}
+				}
+			}
+			if (chunkSize > 0) {
+				pending.add(submitChunk(executor, rawAnswers, rawAlternates, chunkSize));
+			}
+
+			while (!pending.isEmpty()) {
+				answerLength += collectChunk(pending.remove(), answers, alternateAnswers);
+			}
+		} catch (IllegalStateException | ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Malformed question CSV: " + input, e);
+		} finally {
+			for (Future<NormalizedChunk> chunk : pending) {
+				chunk.cancel(false);
+			}
+		}
+
+		return new QuestionBank(answers, alternateAnswers, answerLength);
+	}
+
+	public Iterable<String> questions() {
+		// every pass parses the file again so the questions are never all held at once, whoever stops a pass early
+		// has to close its iterator
+		return () -> {
+			try {
+				return new QuestionIterator(open());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	private static Future<NormalizedChunk> submitChunk(ExecutorService executor, String[] rawAnswers,
+													   String[] rawAlternates, int size) {
+		return executor.submit(() -> normalizeChunk(rawAnswers, rawAlternates, size));
+	}
+
+	private static int collectChunk(Future<NormalizedChunk> future, List<String> answers,
+									List<List<String>> alternateAnswers) throws IOException {
+		NormalizedChunk chunk;
+		try {
+			chunk = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while normalizing answers", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to normalize answers", e.getCause());
+		}
+		answers.addAll(Arrays.asList(chunk.answers));
+		alternateAnswers.addAll(chunk.alternateAnswers);
+		return chunk.answerLength;
+	}
+
+	private static NormalizedChunk normalizeChunk(String[] rawAnswers, String[] rawAlternates, int size) {
+		NormalizedChunk chunk = new NormalizedChunk(size);
+		for (int i = 0; i < size; i++) {
+			String answer = rawAnswers[i];
+			chunk.answers[i] = CaseUtils.trimToUpperCase(answer, 0, answer.length());
+			chunk.answerLength += chunk.answers[i].length();
+			chunk.alternateAnswers.add(splitAlternates(rawAlternates[i]));
+		}
+		return chunk;
+	}
+
+	private static List<String> splitAlternates(String alternates) {
+		if (alternates == null || alternates.isBlank()) {
+			return ImmutableList.of();
+		}
+
+		ImmutableList.Builder<String> builder = ImmutableList.builder();
+		int start = 0;
+		while (start <= alternates.length()) {
+			int end = alternates.indexOf(':', start);
+			if (end < 0) {
+				end = alternates.length();
+			}
+			String alternate = CaseUtils.trimToUpperCase(alternates, start, end);
+			if (!alternate.isBlank()) {
+				builder.add(alternate);
+			}
+			start = end + 1;
+		}
+		return builder.build();
+	}
+
+	private static class NormalizedChunk {
+		final String[] answers;
+		final List<List<String>> alternateAnswers;
+		int answerLength;
+
+		NormalizedChunk(int size) {
+			answers = new String[size];
+			alternateAnswers = Lists.newArrayListWithCapacity(size);
+		}
+	}
+
+	public static void close(Iterator<String> questions) {
+		// failures surface the same way as the iterator's own, so a pass handles them in one place
+		if (questions instanceof Closeable) {
+			try {
+				((Closeable) questions).close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static class QuestionIterator implements Iterator<String>, Closeable {
+		private final CSVParser parser;
+		private final Iterator<CSVRecord> records;
+
+		QuestionIterator(CSVParser parser) {
+			this.parser = parser;
+			records = parser.iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = records.hasNext();
+			if (!hasNext) {
+				try {
+					close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return hasNext;
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return records.next().get(0);
+		}
+	}
+}
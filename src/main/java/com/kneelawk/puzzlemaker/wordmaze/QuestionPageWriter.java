@@ -0,0 +1,124 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.util.List;
+
+public class QuestionPageWriter {
+	private static final String CONTINUATION_INDENT = "    ";
+
+	private final PDDocument document;
+	private final GlyphWidthCache glyphWidths;
+	private final PDRectangle pageSize;
+	private final float fontSize;
+	private final float leftMargin;
+	private final float topMargin;
+	private final float lineWidth;
+	private final float textHeight;
+	private final float lineOffset;
+	private final int linesPerPage;
+	private final List<String> pageLines;
+	private int questionNumber = 0;
+
+	public QuestionPageWriter(PDDocument document, GlyphWidthCache glyphWidths, PDRectangle pageSize,
+							  float fontSize, float leftMargin, float rightMargin, float topMargin,
+							  float bottomMargin) {
+		this.document = document;
+		this.glyphWidths = glyphWidths;
+		this.pageSize = pageSize;
+		this.fontSize = fontSize;
+		this.leftMargin = leftMargin;
+		this.topMargin = topMargin;
+		lineWidth = pageSize.getWidth() - leftMargin - rightMargin;
+		textHeight = glyphWidths.getFont().getFontDescriptor().getFontBoundingBox().getHeight() / 1000f * fontSize;
+		lineOffset = textHeight * 1.15f;
+		linesPerPage =
+				Math.max((int) ((pageSize.getHeight() - topMargin - bottomMargin - textHeight) / lineOffset) + 1, 1);
+		pageLines = Lists.newArrayListWithCapacity(linesPerPage);
+	}
+
+	public void addQuestion(String question) throws IOException {
+		String text = String.format("% 2d. %s", questionNumber++, question);
+
+		// wrap as the text is scanned, breaking at the last space that fits or mid-word when there is none
+		int lineStart = 0, lastSpace = -1;
+		float width = 0;
+		boolean continuation = false;
+		float indentWidth = measure(CONTINUATION_INDENT);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			float charWidth = glyphWidths.getWidth(c, fontSize);
+			if (width + charWidth > lineWidth && i > lineStart) {
+				int breakEnd, nextStart;
+				if (lastSpace > lineStart) {
+					breakEnd = lastSpace;
+					nextStart = lastSpace + 1;
+				} else {
+					breakEnd = i;
+					nextStart = i;
+				}
+				addLine(continuation ? CONTINUATION_INDENT + text.substring(lineStart, breakEnd) :
+						text.substring(lineStart, breakEnd));
+				continuation = true;
+				lineStart = nextStart;
+				lastSpace = -1;
+
+				// the carried over part of the word is measured again after the indent, it may need breaking too
+				width = indentWidth;
+				i = nextStart - 1;
+				continue;
+			}
+			if (c == ' ') {
+				lastSpace = i;
+			}
+			width += charWidth;
+		}
+		addLine(continuation ? CONTINUATION_INDENT + text.substring(lineStart) : text.substring(lineStart));
+	}
+
+	private float measure(String text) throws IOException {
+		float width = 0;
+		for (int i = 0; i < text.length(); i++) {
+			width += glyphWidths.getWidth(text.charAt(i), fontSize);
+		}
+		return width;
+	}
+
+	private void addLine(String line) throws IOException {
+		pageLines.add(line);
+		if (pageLines.size() >= linesPerPage) {
+			flushPage();
+		}
+	}
+
+	public void finish() throws IOException {
+		if (!pageLines.isEmpty()) {
+			flushPage();
+		}
+	}
+
+	private void flushPage() throws IOException {
+		// start the question page and stream
+		PDPage questionPage = new PDPage(pageSize);
+		document.addPage(questionPage);
+		try (PDPageContentStream stream = new PDPageContentStream(document, questionPage)) {
+			// add question text
+			stream.beginText();
+			stream.setFont(glyphWidths.getFont(), fontSize);
+			stream.newLineAtOffset(leftMargin, pageSize.getHeight() - topMargin - textHeight);
+			stream.setLeading(lineOffset);
+			stream.showText(pageLines.get(0));
+			for (int i = 1; i < pageLines.size(); i++) {
+				stream.newLine();
+				stream.showText(pageLines.get(i));
+			}
+			stream.endText();
+		}
+		pageLines.clear();
+	}
+}
@@ -0,0 +1,121 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SVGMazeWriter {
+	private static final int MARGIN = 40;
+	private static final String FONT_FAMILY = "'Noto Mono', monospace";
+
+	public void write(WordMazeSnapshot maze, Path output) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			write(maze, writer);
+		}
+	}
+
+	public void write(WordMazeSnapshot maze, Writer writer) throws IOException {
+		int width = maze.getWidth();
+		int height = maze.getHeight();
+		int boxWidth = maze.getBoxWidth();
+		int boxHeight = maze.getBoxHeight();
+		int canvasWidth = boxWidth * width + 2 * MARGIN;
+		int canvasHeight = boxHeight * height + 2 * MARGIN;
+
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + canvasWidth + "\" height=\"" +
+				canvasHeight + "\" viewBox=\"0 0 " + canvasWidth + " " + canvasHeight + "\">\n");
+		writer.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+		writer.write("<g transform=\"translate(" + MARGIN + "," + MARGIN + ")\">\n");
+
+		// walls are merged into runs and streamed into a single path
+		writer.write("<path fill=\"none\" stroke=\"black\" stroke-width=\"2\" stroke-linecap=\"square\" d=\"");
+		for (int x = 0; x <= width; x++) {
+			int runStart = -1;
+			for (int y = 0; y <= height; y++) {
+				boolean wall = y < height && maze.getVertical(x, y);
+				if (wall && runStart < 0) {
+					runStart = y;
+				} else if (!wall && runStart >= 0) {
+					writer.write("M" + x * boxWidth + " " + runStart * boxHeight + "V" + y * boxHeight);
+					runStart = -1;
+				}
+			}
+		}
+		for (int y = 0; y <= height; y++) {
+			int runStart = -1;
+			for (int x = 0; x <= width; x++) {
+				boolean wall = x < width && maze.getHorizontal(x, y);
+				if (wall && runStart < 0) {
+					runStart = x;
+				} else if (!wall && runStart >= 0) {
+					writer.write("M" + runStart * boxWidth + " " + y * boxHeight + "H" + x * boxWidth);
+					runStart = -1;
+				}
+			}
+		}
+		writer.write("\"/>\n");
+
+		// letters are written as one text run per row, positioned at the center of each box
+		writer.write("<g font-family=\"" + FONT_FAMILY + "\" font-size=\"" + (boxHeight - 6) +
+				"\" text-anchor=\"middle\" dominant-baseline=\"central\" xml:space=\"preserve\">\n");
+		StringBuilder positions = new StringBuilder();
+		StringBuilder text = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				char c = maze.getCharacter(x, y);
+				if (c != 0) {
+					if (positions.length() > 0) {
+						positions.append(' ');
+					}
+					positions.append(x * boxWidth + boxWidth / 2f);
+					appendEscaped(text, c);
+				}
+			}
+			if (text.length() > 0) {
+				writeText(writer, positions, y * boxHeight + boxHeight / 2f, text);
+				positions.setLength(0);
+				text.setLength(0);
+			}
+		}
+		char extraLetter = maze.getExtraLetter();
+		if (extraLetter != 0) {
+			Vec2i loc = maze.getExtraLetterLocation();
+			positions.append(loc.x * boxWidth + boxWidth / 2f);
+			appendEscaped(text, extraLetter);
+			writeText(writer, positions, loc.y * boxHeight + boxHeight / 2f, text);
+		}
+		writer.write("</g>\n");
+
+		writer.write("</g>\n");
+		writer.write("</svg>\n");
+	}
+
+	private static void writeText(Writer writer, CharSequence positions, float y, CharSequence text)
+			throws IOException {
+		writer.write("<text x=\"");
+		writer.append(positions);
+		writer.write("\" y=\"" + y + "\">");
+		writer.append(text);
+		writer.write("</text>\n");
+	}
+
+	private static void appendEscaped(StringBuilder sb, char c) {
+		switch (c) {
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			default:
+				sb.append(c);
+				break;
+		}
+	}
+}
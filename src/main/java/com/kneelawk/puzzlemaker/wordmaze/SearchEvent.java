@@ -0,0 +1,45 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kneelawk.puzzlemaker.Search")
+@Label("Maze Search")
+@Description("The work done by one run of the solver or of the alternate answer placement")
+@Category("PuzzleMaker")
+@StackTrace(false)
+public class SearchEvent extends Event {
+	@Label("Search")
+	String search;
+
+	@Label("Maze Width")
+	int mazeWidth;
+
+	@Label("Maze Height")
+	int mazeHeight;
+
+	@Label("Word Length")
+	int wordLength;
+
+	@Label("Nodes Expanded")
+	long nodesExpanded;
+
+	@Label("Backtracks")
+	long backtracks;
+
+	@Label("Maximum Depth")
+	int maxDepth;
+
+	@Label("Alternates Placed")
+	int alternatesPlaced;
+
+	@Label("Alternates Partially Placed")
+	int alternatesPartial;
+
+	@Label("Alternates Skipped")
+	int alternatesSkipped;
+}
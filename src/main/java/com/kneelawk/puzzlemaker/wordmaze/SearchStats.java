@@ -0,0 +1,65 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+public class SearchStats {
+	private long nodesExpanded;
+	private long backtracks;
+	private int maxDepth;
+	private int alternatesPlaced;
+	private int alternatesPartial;
+	private int alternatesSkipped;
+
+	void expand(int depth) {
+		nodesExpanded++;
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+	}
+
+	void backtrack() {
+		backtracks++;
+	}
+
+	void alternatePlaced(boolean exact) {
+		alternatesPlaced++;
+		if (!exact) {
+			alternatesPartial++;
+		}
+	}
+
+	void alternateSkipped() {
+		alternatesSkipped++;
+	}
+
+	public void add(SearchStats other) {
+		nodesExpanded += other.nodesExpanded;
+		backtracks += other.backtracks;
+		maxDepth = Math.max(maxDepth, other.maxDepth);
+		alternatesPlaced += other.alternatesPlaced;
+		alternatesPartial += other.alternatesPartial;
+		alternatesSkipped += other.alternatesSkipped;
+	}
+
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public int getAlternatesPlaced() {
+		return alternatesPlaced;
+	}
+
+	public int getAlternatesPartial() {
+		return alternatesPartial;
+	}
+
+	public int getAlternatesSkipped() {
+		return alternatesSkipped;
+	}
+}
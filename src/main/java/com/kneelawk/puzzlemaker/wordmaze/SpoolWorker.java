@@ -0,0 +1,120 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class SpoolWorker {
+	private static final int MAX_SOLVE_ATTEMPTS = 3;
+
+	private final PuzzleSpool spool;
+	private final ExecutorService executor;
+	private final MazeCache cache;
+	private final ScheduledExecutorService leases;
+	private int finished;
+	private int failures;
+
+	public SpoolWorker(PuzzleSpool spool, ExecutorService executor, MazeCache cache) {
+		this.spool = spool;
+		this.executor = executor;
+		this.cache = cache;
+		leases = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "spool-lease");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public int getFinished() {
+		return finished;
+	}
+
+	public int run() throws IOException, InterruptedException {
+		// the worker stays until nothing is pending or claimed, so it can take over jobs from workers that die
+		long pollMillis = Math.max(spool.getLeaseMillis() / 4, 100);
+		try {
+			while (true) {
+				PuzzleSpool.Claim claim = spool.claim();
+				if (claim != null) {
+					runClaim(claim);
+				} else if (spool.isIdle()) {
+					return failures;
+				} else {
+					Thread.sleep(pollMillis);
+				}
+			}
+		} finally {
+			leases.shutdownNow();
+		}
+	}
+
+	private void runClaim(PuzzleSpool.Claim claim) throws IOException {
+		long renewMillis = Math.max(spool.getLeaseMillis() / 3, 1);
+		ScheduledFuture<?> lease =
+				leases.scheduleAtFixedRate(claim::renew, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+		try {
+			PuzzleJob job = runJob(claim);
+			if (job == null) {
+				return;
+			}
+			if (!spool.complete(claim, job.getSeed())) {
+				System.out.println("Lost the lease on job: " + claim.getName() + ", leaving it to another worker");
+				return;
+			}
+			finished++;
+			File output = job.getArguments().getOutputPDF();
+			System.out.println("Finished puzzle: " + claim.getName() + " " + (output != null ? output : "") +
+					" (seed " + job.getSeed() + ")");
+		} catch (IllegalArgumentException | UnsolvableException | IOException | UncheckedIOException e) {
+			System.err.println("Failed puzzle: " + claim.getName() + " (" + e + ")");
+			if (spool.fail(claim, e.toString())) {
+				failures++;
+			} else {
+				System.out.println("Lost the lease on job: " + claim.getName() + ", leaving it to another worker");
+			}
+		} finally {
+			lease.cancel(false);
+		}
+	}
+
+	private PuzzleJob runJob(PuzzleSpool.Claim claim) throws UnsolvableException, IOException {
+		WordMazeGeneratorArguments arguments = new WordMazeGeneratorArguments();
+		arguments.parseSpooledArguments(claim.getOptions(), claim.getDirectory().toFile());
+		PuzzleJob job = new PuzzleJob(arguments, executor, cache, claim.getSeed());
+
+		job.loadQuestions();
+		job.generateMaze();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				job.solve();
+				break;
+			} catch (UnsolvableException e) {
+				if (attempt >= MAX_SOLVE_ATTEMPTS) {
+					throw e;
+				}
+				job.generateMaze();
+			}
+		}
+		job.addAlternateAnswers();
+		job.fillRandomCharacters();
+
+		// a worker that lost its lease leaves the outputs to the one that took the job over
+		if (claim.isLost()) {
+			System.out.println("Lost the lease on job: " + claim.getName() + ", leaving it to another worker");
+			return null;
+		}
+		job.writeAnswerPDF();
+		job.writePuzzlePDF();
+		job.writePNG();
+		job.writeSVG();
+		job.saveMaze();
+		job.writeStats();
+		job.writeProfile();
+		return job;
+	}
+}
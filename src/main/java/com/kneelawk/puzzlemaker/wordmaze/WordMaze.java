@@ -3,17 +3,21 @@ package com.kneelawk.puzzlemaker.wordmaze;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import java.awt.*;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.stream.Collectors;
 
 public class WordMaze {
 	private static final float MAZE_CHANCE_TO_SPLIT = 0.2f;
 
-	private Random random;
+	private MazeRandom generationRandom;
+	private MazeRandom solveRandom;
+	private MazeRandom alternateRandom;
+	private MazeRandom fillRandom;
 	private int width;
 	private int height;
 	private int boxWidth;
@@ -23,20 +27,86 @@ public class WordMaze {
 	private boolean[][] verticals;
 	private boolean[][] horizontals;
 	private char[][] letters;
+	private boolean[][] grown;
 	private char extraLetter;
+	private List<Vec2i> solutionPath;
+	private SearchStats stats = new SearchStats();
 
-	public WordMaze(Random random, int width, int height, int boxWidth, int boxHeight, int startPosition,
+	public WordMaze(MazeRandom random, int width, int height, int boxWidth, int boxHeight, int startPosition,
 					int endPosition) {
-		this.random = random;
+		reset(random, width, height, boxWidth, boxHeight, startPosition, endPosition);
+	}
+
+	public void reset(MazeRandom random, int width, int height, int boxWidth, int boxHeight, int startPosition,
+					  int endPosition) {
+		// each step draws from its own stream, so one step using more numbers doesn't reshuffle the others
+		generationRandom = random.split();
+		solveRandom = random.split();
+		alternateRandom = random.split();
+		fillRandom = random.split();
 		this.width = width;
 		this.height = height;
 		this.boxWidth = boxWidth;
 		this.boxHeight = boxHeight;
 		this.startPosition = startPosition;
 		this.endPosition = endPosition;
-		verticals = new boolean[height][width + 1];
-		horizontals = new boolean[height + 1][width];
-		letters = new char[height][width];
+
+		// a maze of the same or a smaller size keeps its arrays, everything only ever looks at width by height
+		if (letters == null || letters.length < height || letters[0].length < width) {
+			verticals = new boolean[height][width + 1];
+			horizontals = new boolean[height + 1][width];
+			letters = new char[height][width];
+			grown = new boolean[height][width];
+		} else {
+			clearLetters();
+		}
+		// fresh arrays skip clearLetters, and a letter left over from the last solve would be drawn by the new exit
+		extraLetter = 0;
+		solutionPath = null;
+		stats = new SearchStats();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getBoxWidth() {
+		return boxWidth;
+	}
+
+	public int getBoxHeight() {
+		return boxHeight;
+	}
+
+	public char getExtraLetter() {
+		return extraLetter;
+	}
+
+	public int getStartPosition() {
+		return startPosition;
+	}
+
+	public int getEndPosition() {
+		return endPosition;
+	}
+
+	public List<Vec2i> getSolutionPath() {
+		return solutionPath;
+	}
+
+	public SearchStats takeStats() {
+		// each caller gets the counts since the last time they were taken, so searches can be told apart
+		SearchStats taken = stats;
+		stats = new SearchStats();
+		return taken;
+	}
+
+	public Vec2i getExtraLetterLocation() {
+		return getPerimeterVec(endPosition).add(getPerimeterSide(endPosition).getVec());
 	}
 
 	private void setupBoundary() {
@@ -88,6 +158,14 @@ public class WordMaze {
 		verticals[y][x] = value;
 	}
 
+	public boolean getHorizontal(int x, int y) {
+		return horizontals[y][x];
+	}
+
+	public boolean getVertical(int x, int y) {
+		return verticals[y][x];
+	}
+
 	public void setBoxSide(Vec2i loc, BoxSide side, boolean value) {
 		switch (side) {
 			case TOP:
@@ -140,24 +218,46 @@ public class WordMaze {
 		letters[loc.y][loc.x] = c;
 	}
 
+	public char getCharacter(int x, int y) {
+		return letters[y][x];
+	}
+
+	public void restore(WordMazeSnapshot snapshot) {
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x <= width; x++) {
+				verticals[y][x] = snapshot.getVertical(x, y);
+			}
+		}
+		for (int y = 0; y <= height; y++) {
+			for (int x = 0; x < width; x++) {
+				horizontals[y][x] = snapshot.getHorizontal(x, y);
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				letters[y][x] = snapshot.getCharacter(x, y);
+			}
+		}
+	}
+
 	public void clearBarriersForMaze() {
 		new MazeGenerator().generate();
 	}
 
 	public void clearRandomBarriers(int barrierCount) {
 		for (int i = 0; i < barrierCount; i++) {
-			if (random.nextBoolean()) {
+			if (generationRandom.nextBoolean()) {
 				int x, y;
 				do {
-					y = random.nextInt(height - 2) + 1;
-					x = random.nextInt(width - 1) + 1;
+					y = generationRandom.nextInt(height - 2) + 1;
+					x = generationRandom.nextInt(width - 1) + 1;
 				} while (!verticals[y][x]);
 				verticals[y][x] = false;
 			} else {
 				int x, y;
 				do {
-					y = random.nextInt(height - 1) + 1;
-					x = random.nextInt(width - 2) + 1;
+					y = generationRandom.nextInt(height - 1) + 1;
+					x = generationRandom.nextInt(width - 2) + 1;
 				} while (!horizontals[y][x]);
 				horizontals[y][x] = false;
 			}
@@ -174,6 +274,7 @@ public class WordMaze {
 
 	public List<Vec2i> solve(Vec2i start, Vec2i end, int index, String wordString,
 							 Map<Vec2i, Character> letters) {
+		stats.expand(index);
 		if (index >= wordString.length() - 2 && start.equals(end)) {
 			return ImmutableList.of(start);
 		} else if (index >= wordString.length() - 1) {
@@ -186,7 +287,7 @@ public class WordMaze {
 			}
 			List<BoxSide> availableDirections = getAvailableDirections(start);
 			while (!availableDirections.isEmpty()) {
-				BoxSide direction = availableDirections.remove(random.nextInt(availableDirections.size()));
+				BoxSide direction = availableDirections.remove(solveRandom.nextInt(availableDirections.size()));
 				Vec2i child = start.add(direction.getVec());
 				if (!letters.containsKey(child) ||
 						(letters.containsKey(child) && letters.get(child) == wordString.charAt(index + 1))) {
@@ -194,6 +295,7 @@ public class WordMaze {
 					if (path != null) {
 						return ImmutableList.<Vec2i>builder().add(start).addAll(path).build();
 					}
+					stats.backtrack();
 				}
 			}
 			return null;
@@ -235,10 +337,18 @@ public class WordMaze {
 	}
 
 	public List<List<Vec2i>> pathWordString(List<String> words) throws UnsolvableException {
+		return pathWordString(words, ImmutableList.of());
+	}
+
+	public List<List<Vec2i>> pathWordString(List<String> words, List<Vec2i> previousPath)
+			throws UnsolvableException {
 		String wordString = words.stream().reduce("", String::concat);
 
-		List<Vec2i> path = solve(getPerimeterVec(startPosition), getPerimeterVec(endPosition), 0, wordString,
-				ImmutableMap.of());
+		List<Vec2i> path = previousPath.isEmpty() ? null : resolve(previousPath, wordString);
+		if (path == null) {
+			path = solve(getPerimeterVec(startPosition), getPerimeterVec(endPosition), 0, wordString,
+					ImmutableMap.of());
+		}
 
 		if (path == null) {
 			throw new UnsolvableException(
@@ -273,15 +383,50 @@ public class WordMaze {
 			}
 		}
 
-		if (i < wordString.length()) {
-			extraLetter = wordString.charAt(wordString.length() - 1);
-		}
+		extraLetter = i < wordString.length() ? wordString.charAt(wordString.length() - 1) : 0;
+		solutionPath = path.subList(0, i);
 
 		return alternateLocationsList;
 	}
 
+	private List<Vec2i> resolve(List<Vec2i> previousPath, String wordString) {
+		// the previous path's letters are still on the maze, so the part matching the new word string is kept as is
+		int prefix = 0;
+		while (prefix < previousPath.size() && prefix < wordString.length()) {
+			Vec2i loc = previousPath.get(prefix);
+			if (letters[loc.y][loc.x] != wordString.charAt(prefix)) {
+				break;
+			}
+			prefix++;
+		}
+		clearLetters();
+		if (prefix == 0) {
+			return null;
+		}
+
+		// only the rest is searched again, starting from the last cell that still matches
+		Map<Vec2i, Character> kept = Maps.newHashMap();
+		for (int i = 0; i < prefix - 1; i++) {
+			kept.put(previousPath.get(i), wordString.charAt(i));
+		}
+		List<Vec2i> suffix = solve(previousPath.get(prefix - 1), getPerimeterVec(endPosition), prefix - 1, wordString,
+				ImmutableMap.copyOf(kept));
+		if (suffix == null) {
+			return null;
+		}
+		return ImmutableList.<Vec2i>builder().addAll(previousPath.subList(0, prefix - 1)).addAll(suffix).build();
+	}
+
+	private void clearLetters() {
+		for (int y = 0; y < height; y++) {
+			Arrays.fill(letters[y], 0, width, (char) 0);
+		}
+		extraLetter = 0;
+	}
+
 	public List<Vec2i> findExactLetterPath(Vec2i start, int index, String wordString,
 										   Map<Vec2i, Character> letterMap) {
+		stats.expand(index);
 		if (index >= wordString.length() - 1) {
 			return ImmutableList.of(start);
 		} else {
@@ -292,7 +437,8 @@ public class WordMaze {
 			}
 			List<BoxSide> availableDirections = getAvailableDirections(start);
 			while (!availableDirections.isEmpty()) {
-				BoxSide direction = availableDirections.remove(random.nextInt(availableDirections.size()));
+				BoxSide direction =
+						availableDirections.remove(alternateRandom.nextInt(availableDirections.size()));
 				Vec2i child = start.add(direction.getVec());
 				char childChar = wordString.charAt(index + 1);
 				if ((!letterMap.containsKey(child) ||
@@ -302,6 +448,7 @@ public class WordMaze {
 					if (path != null) {
 						return ImmutableList.<Vec2i>builder().add(start).addAll(path).build();
 					}
+					stats.backtrack();
 				}
 			}
 			return null;
@@ -309,6 +456,7 @@ public class WordMaze {
 	}
 
 	public List<Vec2i> findLetterPath(Vec2i start, int index, String wordString, Map<Vec2i, Character> letterMap) {
+		stats.expand(index);
 		if (index >= wordString.length() - 1) {
 			return ImmutableList.of(start);
 		} else {
@@ -319,7 +467,8 @@ public class WordMaze {
 			}
 			List<BoxSide> availableDirections = getAvailableDirections(start);
 			while (!availableDirections.isEmpty()) {
-				BoxSide direction = availableDirections.remove(random.nextInt(availableDirections.size()));
+				BoxSide direction =
+						availableDirections.remove(alternateRandom.nextInt(availableDirections.size()));
 				Vec2i child = start.add(direction.getVec());
 				char childChar = wordString.charAt(index + 1);
 				if ((!letterMap.containsKey(child) ||
@@ -335,6 +484,7 @@ public class WordMaze {
 
 	public void drawAlternateAnswer(Vec2i start, String answer) {
 		List<Vec2i> path = findExactLetterPath(start, 0, answer, ImmutableMap.of());
+		stats.alternatePlaced(path != null);
 		if (path == null) {
 			path = findLetterPath(start, 0, answer, ImmutableMap.of());
 		}
@@ -361,7 +511,10 @@ public class WordMaze {
 						.filter(vec -> letters[vec.y][vec.x] == 0 || letters[vec.y][vec.x] == firstChar)
 						.collect(Collectors.toList());
 				if (!availableLocations.isEmpty()) {
-					drawAlternateAnswer(availableLocations.get(random.nextInt(availableLocations.size())), answer);
+					drawAlternateAnswer(availableLocations.get(alternateRandom.nextInt(availableLocations.size())),
+							answer);
+				} else {
+					stats.alternateSkipped();
 				}
 			}
 		}
@@ -371,52 +524,27 @@ public class WordMaze {
 		for (int y = 0; y < height; y++) {
 			for (int x = 0; x < width; x++) {
 				if (letters[y][x] == 0) {
-					letters[y][x] = alphabet.charAt(random.nextInt(alphabet.length()));
+					letters[y][x] = alphabet.charAt(fillRandom.nextInt(alphabet.length()));
 				}
 			}
 		}
 	}
 
+	public WordMazeSnapshot snapshot() {
+		return new WordMazeSnapshot(width, height, boxWidth, boxHeight, verticals, horizontals, letters, extraLetter,
+				getExtraLetterLocation());
+	}
+
 	public void draw(Graphics2D graphics2D) {
-		graphics2D.setStroke(new BasicStroke(2));
-		graphics2D.setColor(Color.BLACK);
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x <= width; x++) {
-				if (verticals[y][x]) {
-					graphics2D.drawLine(x * boxWidth, y * boxHeight, x * boxWidth, y * boxHeight + boxHeight);
-				}
-			}
-		}
-		for (int y = 0; y <= height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (horizontals[y][x]) {
-					graphics2D.drawLine(x * boxWidth, y * boxHeight, x * boxWidth + boxWidth, y * boxHeight);
-				}
-			}
-		}
-		FontMetrics metrics = graphics2D.getFontMetrics();
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (letters[y][x] != 0) {
-					graphics2D.drawChars(letters[y], x, 1,
-							x * boxWidth + (boxWidth - metrics.charWidth(letters[y][x])) / 2,
-							y * boxHeight + (boxHeight - metrics.getHeight()) / 2 + metrics.getAscent());
-				}
-			}
-		}
-		if (extraLetter != 0) {
-			Vec2i loc = getPerimeterVec(endPosition).add(getPerimeterSide(endPosition).getVec());
-			graphics2D.drawChars(new char[]{extraLetter}, 0, 1,
-					loc.x * boxWidth + (boxWidth - metrics.charWidth(extraLetter)) / 2,
-					loc.y * boxHeight + (boxHeight - metrics.getHeight()) / 2 + metrics.getAscent());
-		}
+		snapshot().draw(graphics2D);
 	}
 
 	private class MazeGenerator {
-		boolean[][] grown = new boolean[height][width];
-
 		void generate() {
-			growFromPoint(new Vec2i(random.nextInt(width), random.nextInt(height)));
+			for (int y = 0; y < height; y++) {
+				Arrays.fill(grown[y], 0, width, false);
+			}
+			growFromPoint(new Vec2i(generationRandom.nextInt(width), generationRandom.nextInt(height)));
 
 			List<Vec2i> blanks = Lists.newArrayList();
 			for (int y = 0; y < height; y++) {
@@ -428,12 +556,11 @@ public class WordMaze {
 			}
 
 			while (!blanks.isEmpty()) {
-				Vec2i current = blanks.get(random.nextInt(blanks.size()));
+				Vec2i current = blanks.get(generationRandom.nextInt(blanks.size()));
 				List<BoxSide> adjacentGrowths = getAdjacentGrowths(current);
 				if (!adjacentGrowths.isEmpty()) {
 					blanks.remove(current);
-					setBoxSide(current, adjacentGrowths.get(random.nextInt(adjacentGrowths.size())),
-							false);
+					setBoxSide(current, adjacentGrowths.get(generationRandom.nextInt(adjacentGrowths.size())), false);
 					blanks.removeAll(growFromPoint(current));
 				}
 			}
@@ -462,7 +589,7 @@ public class WordMaze {
 			grown[growthOrigin.y][growthOrigin.x] = true;
 
 			while (!newGrowth.isEmpty()) {
-				Vec2i current = newGrowth.get(random.nextInt(newGrowth.size()));
+				Vec2i current = newGrowth.get(generationRandom.nextInt(newGrowth.size()));
 				newGrowth.remove(current);
 
 				List<BoxSide> availableDirections = Lists.newArrayList();
@@ -481,7 +608,8 @@ public class WordMaze {
 
 				if (!availableDirections.isEmpty()) {
 					do {
-						BoxSide direction = availableDirections.get(random.nextInt(availableDirections.size()));
+						BoxSide direction =
+								availableDirections.get(generationRandom.nextInt(availableDirections.size()));
 						setBoxSide(current, direction, false);
 
 						Vec2i childGrowth = current.add(direction.getVec());
@@ -489,7 +617,7 @@ public class WordMaze {
 
 						newGrowth.add(childGrowth);
 						grown[childGrowth.y][childGrowth.x] = true;
-					} while (!availableDirections.isEmpty() && random.nextFloat() < MAZE_CHANCE_TO_SPLIT);
+					} while (!availableDirections.isEmpty() && generationRandom.nextFloat() < MAZE_CHANCE_TO_SPLIT);
 				}
 			}
 
@@ -1,200 +1,463 @@
 package com.kneelawk.puzzlemaker.wordmaze;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
-import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2DFontTextDrawer;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
-import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
-import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
-
-import java.awt.*;
-import java.io.File;
-import java.io.FileReader;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WordMazeGenerator {
-	private static final String FONT_RESOURCE = "NotoMono-Regular.ttf";
-
 	public static void main(String[] args) {
 		WordMazeGeneratorArguments arguments = new WordMazeGeneratorArguments();
-		arguments.parseArguments(args);
+		try {
+			arguments.parseArguments(args);
+		} catch (InvalidArgumentsException e) {
+			exitWithHelp(e);
+		}
 
-		Random random = new Random();
-		int mazeWidth = arguments.getMazeWidth();
-		int mazeHeight = arguments.getMazeHeight();
-		int boxWidth = arguments.getBoxWidth();
-		int boxHeight = arguments.getBoxHeight();
+		// daemon workers, so an uncaught error in main still ends the process instead of leaving the pool running
+		ExecutorService executor =
+				Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemonThreads("puzzle-worker"));
 
-		// load csv
-		List<String> wordString = Lists.newArrayList();
-		int wordStringLength = 0;
-		List<String> questions = Lists.newArrayList();
-		List<List<String>> alternateAnswers = Lists.newArrayList();
-		try {
-			CSVParser questionCSV = CSVFormat.RFC4180.parse(new FileReader(arguments.getInputCSV()));
-			for (CSVRecord questionRecord : questionCSV) {
-				questions.add(questionRecord.get(0));
-				String word = CaseUtils.toUpperCase(questionRecord.get(1).trim());
-				wordString.add(word);
-				wordStringLength += word.length();
-				if (questionRecord.size() > 2 && !questionRecord.get(2).isBlank()) {
-					alternateAnswers.add(Lists.newArrayList(questionRecord.get(2).split(":")).stream()
-							.filter(str -> !str.isBlank()).map(str -> CaseUtils.toUpperCase(str.trim()))
-							.collect(Collectors.toList()));
-				} else {
-					alternateAnswers.add(ImmutableList.of());
-				}
+		MazeCache cache = null;
+		if (arguments.getCacheDirectory() != null) {
+			try {
+				cache = new MazeCache(arguments.getCacheDirectory().toPath(), arguments.getCacheSize(),
+						arguments.isCachePDFs());
+			} catch (IOException e) {
+				System.err.println("Unable to open cache directory: " + arguments.getCacheDirectory());
+				System.exit(-1);
 			}
+		}
+
+		if (arguments.getServerPort() != null) {
+			runServer(arguments, executor, cache);
+			return;
+		}
+
+		if (arguments.getRenderMazeFile() != null) {
+			runRender(arguments, executor);
+			executor.shutdown();
+			return;
+		}
+
+		if (arguments.getSpoolDirectory() != null) {
+			int failures = arguments.getBatchManifest() != null ? submitSpool(arguments) :
+					runSpoolWorker(arguments, executor, cache);
+			executor.shutdown();
+			if (failures > 0) {
+				System.exit(2);
+			}
+			return;
+		}
+
+		if (arguments.getBatchManifest() != null) {
+			int failures = runBatch(arguments, executor, cache);
+			executor.shutdown();
+			if (failures > 0) {
+				System.exit(2);
+			}
+			return;
+		}
+
+		if (arguments.getChunkLength() != null) {
+			runChunked(arguments, executor);
+			executor.shutdown();
+			return;
+		}
+
+		ExecutorService outputExecutor = Executors.newCachedThreadPool(daemonThreads("puzzle-output"));
+		List<Future<?>> outputs = Lists.newArrayList();
+		PuzzleJob job = new PuzzleJob(arguments, executor, cache, MazeRandom.newSeed());
+		System.out.println("Using seed: " + job.getSeed());
+
+		// load csv
+		try {
+			job.loadQuestions();
 		} catch (IOException e) {
 			System.err.println("Unable to load CSV file: " + arguments.getInputCSV());
 			System.exit(-1);
 		}
 
-		WordMaze maze = new WordMaze(random, mazeWidth, mazeHeight, boxWidth, boxHeight, arguments.getStartPosition(),
-				arguments.getEndPosition());
-		System.out.println("Generating maze...");
-		maze.generateMaze(arguments.getBarrierRemovals());
+		if (job.isCached()) {
+			System.out.println("Using cached maze...");
+		} else {
+			boolean incremental = job.isIncremental();
+			if (incremental) {
+				System.out.println("Reusing previous maze: " + arguments.getIncrementalMazeFile());
+			} else {
+				System.out.println("Generating maze...");
+			}
+			job.generateMaze();
 
-		System.out.println("Solving maze...");
-		List<List<Vec2i>> alternateLocations = null;
-		try {
-			alternateLocations = maze.pathWordString(wordString);
-		} catch (UnsolvableException e) {
-			System.err.println(
-					"Unable to solve the randomly generated maze for a path of length: " + wordStringLength);
-			System.err.println(
-					"Perhaps there is an issue with the maze-generator settings (maze too large for word-string path, maze too small for word-string path, too few alternate removed barriers).");
-			System.err.println(
-					"Perhaps this execution was just unlucky and the generated maze couldn't be solved the right way.");
-			System.err.println("Either way, you will need to re-execute the program.");
-			System.exit(2);
+			System.out.println("Solving maze...");
+			try {
+				try {
+					job.solve();
+				} catch (UnsolvableException e) {
+					if (!incremental) {
+						throw e;
+					}
+					// the changed words don't fit the previous maze, so a fresh one gets a chance before giving up
+					System.out.println("Generating new maze...");
+					job.generateMaze();
+					job.solve();
+				}
+			} catch (UnsolvableException e) {
+				System.err.println("Unable to solve the randomly generated maze for a path of length: " +
+						job.getQuestionBank().getAnswerLength());
+				System.err.println(
+						"Perhaps there is an issue with the maze-generator settings (maze too large for word-string path, maze too small for word-string path, too few alternate removed barriers).");
+				System.err.println(
+						"Perhaps this execution was just unlucky and the generated maze couldn't be solved the right way.");
+				System.err.println("Either way, you will need to re-execute the program.");
+				System.exit(2);
+			}
 		}
 
+		if (arguments.getOutputStats() != null) {
+			System.out.println("Writing maze stats...");
+			outputs.add(outputExecutor.submit(output(job::writeStats)));
+		}
+
+		// the answer pdf is written from a snapshot while the live maze keeps changing
 		System.out.println("Writing answer pdf...");
-		writePDF(maze, questions, arguments.getAnswerPDF(), mazeWidth, mazeHeight, boxWidth, boxHeight);
+		outputs.add(outputExecutor.submit(output(job::writeAnswerPDF)));
 
-		System.out.println("Adding alternate answers...");
-		maze.addAlternateAnswers(alternateLocations, alternateAnswers);
+		if (!job.isCached()) {
+			System.out.println("Adding alternate answers...");
+			job.addAlternateAnswers();
+
+			System.out.println("Filling the maze with extra letters...");
+			job.fillRandomCharacters();
+		}
 
-		System.out.println("Filling the maze with extra letters...");
-		maze.fillRandomCharacters(arguments.getAlphabet());
+		if (arguments.getOutputMazeFile() != null || arguments.getIncrementalMazeFile() != null) {
+			System.out.println("Saving maze file...");
+			outputs.add(outputExecutor.submit(output(job::saveMaze)));
+		}
 
 		System.out.println("Writing resulting pdf...");
-		writePDF(maze, questions, arguments.getOutputPDF(), mazeWidth, mazeHeight, boxWidth, boxHeight);
-	}
+		outputs.add(outputExecutor.submit(output(job::writePuzzlePDF)));
 
-	private static void writePDF(WordMaze maze, List<String> questions, File output, int mazeWidth, int mazeHeight,
-								 int boxWidth, int boxHeight) {
-		int canvasWidth = boxWidth * mazeWidth + 80;
-		int canvasHeight = boxHeight * mazeHeight + 80;
-		try (PdfBoxGraphics2DFontTextDrawer fontTextDrawer = new PdfBoxGraphics2DFontTextDrawer()) {
-			// setup document
-			PDDocument document = new PDDocument();
-
-			// setup fonts
-			PDFont textFont = PDTrueTypeFont.load(document, WordMazeGenerator.class.getResourceAsStream(FONT_RESOURCE),
-					WinAnsiEncoding.INSTANCE);
-			Font graphicsFont =
-					Font.createFont(Font.TRUETYPE_FONT, WordMazeGenerator.class.getResourceAsStream(FONT_RESOURCE))
-							.deriveFont(boxHeight - 6f);
-			fontTextDrawer.registerFont(graphicsFont.getFontName(), textFont);
-
-			// setup page
-			PDPage mazePage = new PDPage(new PDRectangle(canvasWidth,
-					canvasHeight));
-			document.addPage(mazePage);
-
-			// setup content stream
-			PDPageContentStream mazeContentStream = new PDPageContentStream(document, mazePage);
-
-			// setup the maze canvas
-			PdfBoxGraphics2D graphics2D = new PdfBoxGraphics2D(document, canvasWidth, canvasHeight);
-
-			// draw the maze
-			graphics2D.setFont(graphicsFont);
-			graphics2D.setFontTextDrawer(fontTextDrawer);
-			graphics2D.translate(40, 40);
-			maze.draw(graphics2D);
-			graphics2D.dispose();
-
-			// draw the maze canvas to the content stream
-			PDFormXObject xObject = graphics2D.getXFormObject();
-			mazeContentStream.drawForm(xObject);
-
-			// close the maze stream
-			mazeContentStream.close();
-
-			// split wrap question text
-			float leftMargin = 72, rightMargin = 72, topMargin = 72, bottomMargin = 72;
-			float fontSize = 12;
-			int pageWidth = (int) ((PDRectangle.A4.getWidth() - leftMargin - rightMargin) /
-					(textFont.getFontDescriptor().getFontBoundingBox().getWidth() / 1000f * fontSize));
-			int pageHeight = (int) ((PDRectangle.A4.getHeight() - topMargin - bottomMargin) /
-					(textFont.getFontDescriptor().getFontBoundingBox().getHeight() / 1000f * fontSize));
-			List<String> lines = Lists.newArrayList();
-			for (int i = 0; i < questions.size(); i++) {
-				String question = String.format("% 2d. %s", i, questions.get(i));
-				while (question.length() > pageWidth) {
-					int split = question.lastIndexOf(' ', pageWidth);
-					lines.add(question.substring(0, split));
-					question = "    " + question.substring(split + 1);
-				}
-				lines.add(question);
+		if (arguments.getOutputPNG() != null) {
+			System.out.println("Writing png preview...");
+			outputs.add(outputExecutor.submit(output(job::writePNG)));
+		}
+
+		if (arguments.getOutputSVG() != null) {
+			System.out.println("Writing svg...");
+			outputs.add(outputExecutor.submit(output(job::writeSVG)));
+		}
+
+		for (Future<?> output : outputs) {
+			try {
+				output.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
 			}
+		}
+		outputExecutor.shutdown();
 
-			while (lines.size() > pageHeight) {
-				writePage(document, textFont, rightMargin, topMargin, fontSize, lines.subList(0, pageHeight));
-				lines = lines.subList(pageHeight, lines.size());
+		// only written once every output is done, so the pdf and image phases are in it
+		System.out.println(job.getProfile().summary());
+		try {
+			job.writeProfile();
+		} catch (IOException e) {
+			System.err.println("Unable to write profile: " + arguments.getOutputProfile());
+			System.err.println(e.getMessage());
+		}
+
+		if (arguments.isWatch()) {
+			try {
+				new PuzzleWatcher(job).run();
+			} catch (IOException e) {
+				System.err.println("Unable to watch CSV file: " + arguments.getInputCSV());
+				System.err.println(e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
-			writePage(document, textFont, rightMargin, topMargin, fontSize, lines);
+		}
 
-			// save the pdf
-			document.save(output);
-			document.close();
-		} catch (IOException | FontFormatException e) {
+		executor.shutdown();
+	}
+
+	private static void runRender(WordMazeGeneratorArguments arguments, ExecutorService executor) {
+		PuzzleJob job = new PuzzleJob(arguments, executor, null, 0);
+		try {
+			job.loadSavedMaze();
+		} catch (IOException e) {
+			System.err.println("Unable to load maze file: " + arguments.getRenderMazeFile());
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		}
+
+		// a saved maze is already solved and filled, so rendering it only needs the writers
+		try {
+			System.out.println("Rendering saved maze...");
+			job.writeAnswerPDF();
+			job.writePuzzlePDF();
+			job.writePNG();
+			job.writeSVG();
+			job.writeStats();
+			System.out.println(job.getProfile().summary());
+			job.writeProfile();
+		} catch (IOException e) {
+			System.err.println("Unable to render maze file: " + arguments.getRenderMazeFile());
 			e.printStackTrace();
+			System.exit(-1);
 		}
 	}
 
-	private static void writePage(PDDocument document, PDFont textFont, float rightMargin, float topMargin,
-								  float fontSize, List<String> lines) throws IOException {
-		// start the question page and stream
-		PDPage questionPage = new PDPage(PDRectangle.A4);
-		document.addPage(questionPage);
-		PDPageContentStream questionContentStream = new PDPageContentStream(document, questionPage);
-
-		// add question text
-		questionContentStream.beginText();
-		drawText(questionContentStream, textFont, fontSize, rightMargin, PDRectangle.A4.getHeight() - topMargin, lines);
-		questionContentStream.endText();
-		questionContentStream.close();
+	private static int runBatch(WordMazeGeneratorArguments arguments, ExecutorService executor, MazeCache cache) {
+		List<WordMazeGeneratorArguments> jobs = Lists.newArrayList();
+		try {
+			for (String[] jobArgs : BatchManifest.read(arguments.getBatchManifest().toPath())) {
+				jobs.add(parseJob(jobArgs, arguments.getWorkbookPDF() == null));
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to load batch manifest: " + arguments.getBatchManifest());
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		} catch (InvalidArgumentsException e) {
+			exitWithHelp(e);
+		}
+
+		WorkbookWriter workbook = null;
+		if (arguments.getWorkbookPDF() != null) {
+			try {
+				workbook = new WorkbookWriter(arguments.getWorkbookPDF(), arguments.getWorkbookAnswerPDF());
+			} catch (IOException e) {
+				System.err.println("Unable to start workbook: " + arguments.getWorkbookPDF());
+				System.exit(-1);
+			}
+		}
+
+		long seed = arguments.getSeed() != null ? arguments.getSeed() : MazeRandom.newSeed();
+		System.out.println("Running " + jobs.size() + " puzzles with seed: " + seed);
+		PuzzlePipeline pipeline =
+				new PuzzlePipeline(executor, arguments.getStageThreads(), arguments.getBatchQueueSize(), workbook,
+						cache, seed);
+		int failures;
+		try {
+			failures = pipeline.run(jobs);
+			System.out.println("Finished " + (jobs.size() - failures) + " of " + jobs.size() + " puzzles.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failures = jobs.size();
+		}
+
+		if (workbook != null) {
+			try (WorkbookWriter book = workbook) {
+				System.out.println("Writing workbook with " + book.getPuzzleCount() + " puzzles...");
+				book.save();
+			} catch (IOException e) {
+				System.err.println("Unable to write workbook: " + arguments.getWorkbookPDF());
+				System.err.println(e.getMessage());
+				return failures + 1;
+			}
+		}
+
+		return failures;
 	}
 
-	private static void drawText(PDPageContentStream stream, PDFont font, float fontSize, float x, float y,
-								 List<String> lines)
-			throws IOException {
-		stream.setFont(font, fontSize);
-		float textHeight = font.getFontDescriptor().getFontBoundingBox().getHeight() / 1000f * fontSize;
-		float lineOffset = textHeight * 1.15f;
+	private static WordMazeGeneratorArguments parseJob(String[] jobArgs, boolean requireOutputs) {
+		WordMazeGeneratorArguments jobArguments = new WordMazeGeneratorArguments();
+		jobArguments.parseArguments(jobArgs, requireOutputs);
+		// a chunked csv is a whole document of mazes, not one puzzle that can sit in a batch
+		if (jobArguments.getChunkLength() != null) {
+			throw new InvalidArgumentsException("--chunk-length can't be used in a batch manifest.");
+		}
+		return jobArguments;
+	}
 
-		stream.newLineAtOffset(x, y - textHeight);
-		stream.setLeading(lineOffset);
-		stream.showText(lines.get(0));
-		for (int i = 1; i < lines.size(); i++) {
-			stream.newLine();
-			stream.showText(lines.get(i));
+	private static int submitSpool(WordMazeGeneratorArguments arguments) {
+		List<String[]> jobs = null;
+		try {
+			jobs = BatchManifest.read(arguments.getBatchManifest().toPath());
+		} catch (IOException e) {
+			System.err.println("Unable to load batch manifest: " + arguments.getBatchManifest());
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		}
+		// jobs are checked here so a typo fails the submission instead of every worker that claims it
+		try {
+			for (String[] jobArgs : jobs) {
+				parseJob(jobArgs, true);
+			}
+		} catch (InvalidArgumentsException e) {
+			exitWithHelp(e);
 		}
+
+		String batchName = arguments.getBatchManifest().getName();
+		if (batchName.contains(".")) {
+			batchName = batchName.substring(0, batchName.lastIndexOf('.'));
+		}
+		long seed = arguments.getSeed() != null ? arguments.getSeed() : MazeRandom.newSeed();
+		try {
+			PuzzleSpool spool = new PuzzleSpool(arguments.getSpoolDirectory().toPath(), 0);
+			int submitted = spool.submit(batchName, jobs, seed, Paths.get("").toAbsolutePath());
+			System.out.println("Submitted " + submitted + " of " + jobs.size() + " puzzles to " +
+					arguments.getSpoolDirectory() + " with seed: " + seed);
+		} catch (IOException e) {
+			System.err.println("Unable to submit to spool directory: " + arguments.getSpoolDirectory());
+			System.err.println(e.getMessage());
+			return jobs.size();
+		}
+		return 0;
+	}
+
+	private static int runSpoolWorker(WordMazeGeneratorArguments arguments, ExecutorService executor,
+									  MazeCache cache) {
+		try {
+			PuzzleSpool spool =
+					new PuzzleSpool(arguments.getSpoolDirectory().toPath(), arguments.getSpoolLease() * 1000);
+			System.out.println("Working on " + arguments.getSpoolDirectory() + " as " + spool.getWorker());
+			SpoolWorker worker = new SpoolWorker(spool, executor, cache);
+			int failures = worker.run();
+			System.out.println("Spool is empty, finished " + worker.getFinished() + " puzzles here.");
+			return failures;
+		} catch (IOException e) {
+			System.err.println("Unable to use spool directory: " + arguments.getSpoolDirectory());
+			System.err.println(e.getMessage());
+			return 1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 1;
+		}
+	}
+
+	private static void runChunked(WordMazeGeneratorArguments arguments, ExecutorService executor) {
+		long seed = arguments.getSeed() != null ? arguments.getSeed() : MazeRandom.newSeed();
+		System.out.println("Using seed: " + seed);
+
+		List<String> questions = null;
+		QuestionBank questionBank = null;
+		try {
+			QuestionCSVReader questionReader =
+					new QuestionCSVReader(arguments.getInputCSV().toPath(), arguments.getInputCharset());
+			// the chunks need every question at hand, so they are collected in the same pass as the answers
+			questions = Lists.newArrayList();
+			questionBank = questionReader.readAnswers(executor, questions);
+		} catch (IOException | UncheckedIOException e) {
+			System.err.println("Unable to load CSV file: " + arguments.getInputCSV());
+			System.exit(-1);
+		}
+
+		PuzzleChunker chunker = new PuzzleChunker(arguments, executor);
+		List<PuzzleChunker.Chunk> chunks = null;
+		try {
+			chunks = PuzzleChunker.partition(questions, questionBank, arguments.getChunkLength());
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		}
+		System.out.println("Generating " + chunks.size() + " mazes of about " + arguments.getChunkLength() +
+				" letters...");
+		List<PuzzleGenerator.GeneratedPuzzle> puzzles = null;
+		try {
+			puzzles = chunker.generate(chunks, seed);
+		} catch (UnsolvableException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Perhaps the chunk length doesn't suit the maze size, or the run was just unlucky.");
+			System.exit(2);
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			e.getCause().printStackTrace();
+			System.exit(-1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		try {
+			System.out.println("Writing pdfs...");
+			chunker.writePDFs(chunks, puzzles);
+		} catch (IOException e) {
+			System.err.println("Unable to write chunked pdfs");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	private static void runServer(WordMazeGeneratorArguments arguments, ExecutorService executor,
+								  MazeCache cache) {
+		MazePool pool = null;
+		if (arguments.getPoolFile() != null) {
+			List<WordMazeGeneratorArguments> shapes = Lists.newArrayList();
+			try {
+				for (String[] shapeArgs : BatchManifest.read(arguments.getPoolFile().toPath())) {
+					WordMazeGeneratorArguments shape = new WordMazeGeneratorArguments();
+					shape.parsePoolArguments(shapeArgs);
+					shapes.add(shape);
+				}
+			} catch (IOException e) {
+				System.err.println("Unable to load pool file: " + arguments.getPoolFile());
+				System.err.println(e.getMessage());
+				System.exit(-1);
+			} catch (InvalidArgumentsException e) {
+				exitWithHelp(e);
+			}
+			pool = new MazePool(shapes, arguments.getPoolDepth());
+			System.out.println("Pooling " + arguments.getPoolDepth() + " mazes for each of " + pool.getShapeCount() +
+					" maze shapes");
+		}
+
+		PuzzleServer server = new PuzzleServer(executor, cache, pool, arguments.getServerThreads());
+		try {
+			server.start(arguments.getServerPort());
+		} catch (IOException e) {
+			System.err.println("Unable to start server on port: " + arguments.getServerPort());
+			System.err.println(e.getMessage());
+			System.exit(-1);
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(1);
+			executor.shutdown();
+		}));
+		System.out.println("Serving puzzles at http://" + server.getAddress().getHostString() + ":" +
+				server.getAddress().getPort() + "/puzzle");
+	}
+
+	private static void exitWithHelp(InvalidArgumentsException e) {
+		// only the command line exits on bad arguments, everything else gets the exception
+		for (String error : e.getErrors()) {
+			System.err.println(error);
+		}
+		System.err.println(WordMazeGeneratorArguments.getHelpText());
+		System.exit(e.isHelpRequested() ? 0 : -1);
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, name + "-" + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private static Callable<Void> output(OutputAction action) {
+		return () -> {
+			action.write();
+			return null;
+		};
+	}
+
+	@FunctionalInterface
+	private interface OutputAction {
+		void write() throws IOException;
 	}
 }
@@ -1,22 +1,17 @@
 package com.kneelawk.puzzlemaker.wordmaze;
 
-import org.apache.commons.configuration2.PropertiesConfiguration;
-import org.apache.commons.configuration2.ex.ConfigurationException;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Properties;
 
 public class WordMazeGeneratorArguments {
-	private static final String HELP_TEXT = loadHelpText();
-	private static final PropertiesConfiguration APPLICATION_PROPERTIES = loadApplicationProperties();
-	private static final int DEFAULT_BOX_WIDTH = APPLICATION_PROPERTIES.getInt("boxWidth");
-	private static final int DEFAULT_BOX_HEIGHT = APPLICATION_PROPERTIES.getInt("boxHeight");
-	private static final String DEFAULT_ALPHABET = APPLICATION_PROPERTIES.getString("alphabet");
-
-	private static String loadHelpText() {
+	public static String getHelpText() {
 		try {
 			return IOUtils.toString(WordMazeGeneratorArguments.class.getResource("help.txt"), Charset.defaultCharset());
 		} catch (IOException e) {
@@ -24,20 +19,39 @@ public class WordMazeGeneratorArguments {
 		}
 	}
 
-	private static PropertiesConfiguration loadApplicationProperties() {
-		try {
-			PropertiesConfiguration props = new PropertiesConfiguration();
-			props.read(new InputStreamReader(
-					WordMazeGeneratorArguments.class.getResourceAsStream("application.properties")));
-			return props;
-		} catch (IOException | ConfigurationException e) {
-			throw new RuntimeException("Unable to load application properties", e);
+	// the defaults live in their own class so the properties file is only read once a default is needed
+	private static class Defaults {
+		static final Properties APPLICATION_PROPERTIES = loadApplicationProperties();
+		static final int BOX_WIDTH = Integer.parseInt(APPLICATION_PROPERTIES.getProperty("boxWidth"));
+		static final int BOX_HEIGHT = Integer.parseInt(APPLICATION_PROPERTIES.getProperty("boxHeight"));
+		static final String ALPHABET = APPLICATION_PROPERTIES.getProperty("alphabet");
+		static final float PNG_SCALE = Float.parseFloat(APPLICATION_PROPERTIES.getProperty("pngScale"));
+		static final float POSTER_MARGIN = Float.parseFloat(APPLICATION_PROPERTIES.getProperty("posterMargin"));
+		static final float POSTER_OVERLAP = Float.parseFloat(APPLICATION_PROPERTIES.getProperty("posterOverlap"));
+		static final String INPUT_CHARSET = APPLICATION_PROPERTIES.getProperty("inputCharset");
+		static final String STAGE_THREADS = APPLICATION_PROPERTIES.getProperty("batchStageThreads");
+		static final int BATCH_QUEUE_SIZE = Integer.parseInt(APPLICATION_PROPERTIES.getProperty("batchQueueSize"));
+		static final int SERVER_THREADS = Integer.parseInt(APPLICATION_PROPERTIES.getProperty("serverThreads"));
+		static final int POOL_DEPTH = Integer.parseInt(APPLICATION_PROPERTIES.getProperty("poolDepth"));
+		static final long SPOOL_LEASE = Long.parseLong(APPLICATION_PROPERTIES.getProperty("spoolLease"));
+		static final long CACHE_SIZE = Long.parseLong(APPLICATION_PROPERTIES.getProperty("cacheSize"));
+
+		private static Properties loadApplicationProperties() {
+			// plain java properties, a configuration library costs more to start up than the whole file is worth
+			try (InputStream is = WordMazeGeneratorArguments.class.getResourceAsStream("application.properties")) {
+				Properties props = new Properties();
+				props.load(is);
+				return props;
+			} catch (IOException e) {
+				throw new RuntimeException("Unable to load application properties", e);
+			}
 		}
 	}
 
 	private File outputPDF;
 	private File answerPDF;
 	private File inputCSV;
+	private Charset inputCharset;
 	private int mazeWidth;
 	private int mazeHeight;
 	private int boxWidth;
@@ -46,6 +60,35 @@ public class WordMazeGeneratorArguments {
 	private int endPosition;
 	private String alphabet;
 	private int barrierRemovals;
+	private File outputPNG;
+	private float pngScale;
+	private File outputSVG;
+	private boolean poster;
+	private float posterMargin = Defaults.POSTER_MARGIN;
+	private float posterOverlap;
+	private File batchManifest;
+	private int[] stageThreads;
+	private int batchQueueSize;
+	private File workbookPDF;
+	private File workbookAnswerPDF;
+	private Integer serverPort;
+	private Long seed;
+	private File cacheDirectory;
+	private File outputMazeFile;
+	private File outputStats;
+	private File outputProfile;
+	private File incrementalMazeFile;
+	private File renderMazeFile;
+	private long cacheSize;
+	private boolean cachePDFs;
+	private boolean watch;
+	private int serverThreads;
+	private File poolFile;
+	private int poolDepth;
+	private File spoolDirectory;
+	private long spoolLease;
+	private Integer chunkLength;
+	private File baseDirectory;
 
 	public File getOutputPDF() {
 		return outputPDF;
@@ -59,6 +102,10 @@ public class WordMazeGeneratorArguments {
 		return inputCSV;
 	}
 
+	public Charset getInputCharset() {
+		return inputCharset;
+	}
+
 	public int getMazeWidth() {
 		return mazeWidth;
 	}
@@ -91,177 +138,631 @@ public class WordMazeGeneratorArguments {
 		return barrierRemovals;
 	}
 
+	public File getOutputPNG() {
+		return outputPNG;
+	}
+
+	public float getPngScale() {
+		return pngScale;
+	}
+
+	public File getOutputSVG() {
+		return outputSVG;
+	}
+
+	public boolean isPoster() {
+		return poster;
+	}
+
+	public float getPosterMargin() {
+		return posterMargin;
+	}
+
+	public float getPosterOverlap() {
+		return posterOverlap;
+	}
+
+	public File getBatchManifest() {
+		return batchManifest;
+	}
+
+	public int[] getStageThreads() {
+		return stageThreads;
+	}
+
+	public int getBatchQueueSize() {
+		return batchQueueSize;
+	}
+
+	public File getWorkbookPDF() {
+		return workbookPDF;
+	}
+
+	public File getWorkbookAnswerPDF() {
+		return workbookAnswerPDF;
+	}
+
+	public Long getSeed() {
+		return seed;
+	}
+
+	public File getOutputMazeFile() {
+		return outputMazeFile;
+	}
+
+	public File getOutputStats() {
+		return outputStats;
+	}
+
+	public File getOutputProfile() {
+		return outputProfile;
+	}
+
+	public boolean isWatch() {
+		return watch;
+	}
+
+	public File getIncrementalMazeFile() {
+		return incrementalMazeFile;
+	}
+
+	public File getRenderMazeFile() {
+		return renderMazeFile;
+	}
+
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	public long getCacheSize() {
+		return cacheSize;
+	}
+
+	public boolean isCachePDFs() {
+		return cachePDFs;
+	}
+
+	public Integer getServerPort() {
+		return serverPort;
+	}
+
+	public int getServerThreads() {
+		return serverThreads;
+	}
+
+	public File getPoolFile() {
+		return poolFile;
+	}
+
+	public int getPoolDepth() {
+		return poolDepth;
+	}
+
+	public File getSpoolDirectory() {
+		return spoolDirectory;
+	}
+
+	public long getSpoolLease() {
+		return spoolLease;
+	}
+
+	public Integer getChunkLength() {
+		return chunkLength;
+	}
+
 	public void parseArguments(String[] args) {
+		parseArguments(args, true);
+	}
+
+	public void parseRequestArguments(String[] args) {
+		// requests are validated the same way, they just don't need anywhere to write to
+		parseArguments(args, false);
+	}
+
+	public void parseSpooledArguments(String[] args, File directory) {
+		// spooled jobs run in other processes, maybe on other machines, so their paths are relative to where
+		// they were submitted
+		baseDirectory = directory;
+		parseArguments(args, true);
+	}
+
+	public void parsePoolArguments(String[] args) {
+		// pool entries only describe the maze, the questions and outputs come with each request
 		Parser parser = new Parser();
 		parser.parse(args);
+		if (!parser.errors.isEmpty()) {
+			throw new InvalidArgumentsException(parser.errors);
+		}
+		parseMazeArguments(parser);
+	}
 
-		if (parser.error) {
-			printHelpAndExit(-1);
+	public void parseArguments(String[] args, boolean requireOutputs) {
+		Parser parser = new Parser();
+		parser.parse(args);
+
+		if (parser.help) {
+			throw InvalidArgumentsException.helpRequested();
+		}
+		if (!parser.errors.isEmpty()) {
+			throw new InvalidArgumentsException(parser.errors);
 		}
 
-		if (parser.outputPDF == null) {
-			System.err.println("Missing --output option");
-			printHelpAndExit(-1);
+		if (parser.batchManifest != null) {
+			parseBatchArguments(parser);
+			return;
 		}
-		outputPDF = new File(parser.outputPDF).getAbsoluteFile();
-		if (!outputPDF.getParentFile().exists()) {
-			System.err.println("Output directory: \"" + outputPDF.getParent() + "\" does not exist.");
-			printHelpAndExit(-1);
+
+		if (parser.spoolDirectory != null) {
+			parseSpoolArguments(parser);
+			return;
 		}
 
-		if (parser.answerPDF == null) {
-			System.err.println("Missing --output-answer option");
-			printHelpAndExit(-1);
+		if (parser.serverPort != null) {
+			parseServerArguments(parser);
+			return;
 		}
-		answerPDF = new File(parser.answerPDF).getAbsoluteFile();
-		if (!answerPDF.getParentFile().exists()) {
-			System.err.println("Answer output directory: \"" + answerPDF.getParent() + "\" does not exist.");
-			printHelpAndExit(-1);
+
+		if (parser.renderMazeFile != null) {
+			parseRenderArguments(parser);
+			return;
 		}
 
+		parseOutputArguments(parser, requireOutputs);
+
 		if (parser.inputCSV == null) {
-			System.err.println("Missing --intput option");
-			printHelpAndExit(-1);
+			invalid("Missing --intput option");
 		}
-		inputCSV = new File(parser.inputCSV).getAbsoluteFile();
+		inputCSV = resolve(parser.inputCSV);
 		if (!inputCSV.exists()) {
-			System.err.println("Input CSV file: \"" + inputCSV + "\" does not exist.");
-			printHelpAndExit(-1);
+			invalid("Input CSV file: \"" + inputCSV + "\" does not exist.");
+		}
+
+		String inputCharsetName = parser.inputCharset == null ? Defaults.INPUT_CHARSET : parser.inputCharset;
+		try {
+			inputCharset = Charset.forName(inputCharsetName);
+		} catch (IllegalArgumentException e) {
+			invalid("Input charset: " + inputCharsetName + " is not a supported charset.");
+		}
+
+		parseMazeArguments(parser);
+
+		if (parser.incrementalMazeFile != null) {
+			incrementalMazeFile = resolve(parser.incrementalMazeFile);
+			if (!incrementalMazeFile.getParentFile().exists()) {
+				invalid("Incremental maze file directory: \"" + incrementalMazeFile.getParent() +
+						"\" does not exist.");
+			}
 		}
 
+		watch = parser.watch;
+
+		parseSeed(parser);
+		parseCache(parser);
+		parseChunkLength(parser);
+	}
+
+	private void parseMazeArguments(Parser parser) {
 		if (parser.mazeWidth == null) {
-			System.err.println("Missing --width option");
-			printHelpAndExit(-1);
+			invalid("Missing --width option");
 		}
 		try {
 			mazeWidth = Integer.parseInt(parser.mazeWidth);
 		} catch (NumberFormatException e) {
-			System.err.println("Width: " + parser.mazeWidth + " is not a valid integer.");
-			printHelpAndExit(-1);
+			invalid("Width: " + parser.mazeWidth + " is not a valid integer.");
 		}
 		if (mazeWidth < 2) {
-			System.err.println("Mazes must be at least 2 boxes wide");
-			printHelpAndExit(-1);
+			invalid("Mazes must be at least 2 boxes wide");
 		}
 
 		if (parser.mazeHeight == null) {
-			System.err.println("Missing --height option");
-			printHelpAndExit(-1);
+			invalid("Missing --height option");
 		}
 		try {
 			mazeHeight = Integer.parseInt(parser.mazeHeight);
 		} catch (NumberFormatException e) {
-			System.err.println("Height: " + parser.mazeHeight + " is not a valid integer.");
-			printHelpAndExit(-1);
+			invalid("Height: " + parser.mazeHeight + " is not a valid integer.");
 		}
 		if (mazeHeight < 2) {
-			System.err.println("Mazes must be at least 2 boxes high");
-			printHelpAndExit(-1);
+			invalid("Mazes must be at least 2 boxes high");
 		}
 
 		if (parser.boxWidth == null) {
-			boxWidth = DEFAULT_BOX_WIDTH;
+			boxWidth = Defaults.BOX_WIDTH;
 		} else {
 			try {
 				boxWidth = Integer.parseInt(parser.boxWidth);
 			} catch (NumberFormatException e) {
-				System.err.println("Box width: " + parser.boxWidth + " is not a valid integer.");
-				printHelpAndExit(-1);
+				invalid("Box width: " + parser.boxWidth + " is not a valid integer.");
 			}
 		}
 		if (boxWidth < 1) {
-			System.err.println("Boxes must be at least 1 unit wide.");
-			printHelpAndExit(-1);
+			invalid("Boxes must be at least 1 unit wide.");
 		}
 
 		if (parser.boxHeight == null) {
-			boxHeight = DEFAULT_BOX_HEIGHT;
+			boxHeight = Defaults.BOX_HEIGHT;
 		} else {
 			try {
 				boxHeight = Integer.parseInt(parser.boxHeight);
 			} catch (NumberFormatException e) {
-				System.err.println("Box height: " + parser.boxHeight + " is not a valid integer.");
-				printHelpAndExit(-1);
+				invalid("Box height: " + parser.boxHeight + " is not a valid integer.");
 			}
 		}
 		if (boxHeight < 1) {
-			System.err.println("Boxes must be at least 1 unit tall.");
-			printHelpAndExit(-1);
+			invalid("Boxes must be at least 1 unit tall.");
 		}
 
 		if (parser.startPosition == null) {
-			System.err.println("Missing --start option");
-			printHelpAndExit(-1);
+			invalid("Missing --start option");
 		}
 		try {
 			startPosition = Integer.parseInt(parser.startPosition);
 		} catch (NumberFormatException e) {
-			System.err.println("Start position: " + parser.startPosition + " is not a valid integer.");
-			printHelpAndExit(-1);
+			invalid("Start position: " + parser.startPosition + " is not a valid integer.");
 		}
 		if (startPosition < 0) {
-			System.err.println("Mazes' start positions cannot be negative.");
-			printHelpAndExit(-1);
+			invalid("Mazes' start positions cannot be negative.");
 		}
 		if (startPosition >= 2 * mazeWidth + 2 * mazeHeight) {
-			System.err.println("Mazes' start positions must be less than 2 * maze-width + 2 * maze-height");
-			printHelpAndExit(-1);
+			invalid("Mazes' start positions must be less than 2 * maze-width + 2 * maze-height");
 		}
 
 		if (parser.endPosition == null) {
-			System.err.println("Missing --end option");
-			printHelpAndExit(-1);
+			invalid("Missing --end option");
 		}
 		try {
 			endPosition = Integer.parseInt(parser.endPosition);
 		} catch (NumberFormatException e) {
-			System.err.println("End position: " + parser.endPosition + " is not a valid integer.");
-			printHelpAndExit(-1);
+			invalid("End position: " + parser.endPosition + " is not a valid integer.");
 		}
 		if (endPosition < 0) {
-			System.err.println("Mazes' end positions cannot be negative.");
-			printHelpAndExit(-1);
+			invalid("Mazes' end positions cannot be negative.");
 		}
 		if (endPosition >= 2 * mazeWidth + 2 * mazeHeight) {
-			System.err.println("Mazes' end positions must be less than 2 * maze-width + 2 * maze-height");
-			printHelpAndExit(-1);
+			invalid("Mazes' end positions must be less than 2 * maze-width + 2 * maze-height");
 		}
 		if (endPosition == startPosition) {
-			System.err.println("The end position must be different from the start position.");
-			printHelpAndExit(-1);
+			invalid("The end position must be different from the start position.");
 		}
 
 		if (parser.alphabet == null) {
-			alphabet = DEFAULT_ALPHABET;
+			alphabet = Defaults.ALPHABET;
 		} else {
 			alphabet = parser.alphabet;
 		}
 
 		if (parser.barrierRemovals == null) {
-			System.err.println("Missing --barrier-removals option.");
-			printHelpAndExit(-1);
+			invalid("Missing --barrier-removals option.");
 		}
 		try {
 			barrierRemovals = Integer.parseInt(parser.barrierRemovals);
 		} catch (NumberFormatException e) {
-			System.err.println("Barrier removals: " + parser.barrierRemovals + " is not a valid integer");
-			printHelpAndExit(-1);
+			invalid("Barrier removals: " + parser.barrierRemovals + " is not a valid integer");
 		}
 		if (barrierRemovals < 0) {
-			System.err.println("Barrier removals must not be negative.");
-			printHelpAndExit(-1);
+			invalid("Barrier removals must not be negative.");
+		}
+	}
+
+	private void parseOutputArguments(Parser parser, boolean requireOutputs) {
+		if (parser.outputPDF == null) {
+			if (requireOutputs) {
+				invalid("Missing --output option");
+			}
+		} else {
+			outputPDF = resolve(parser.outputPDF);
+			if (!outputPDF.getParentFile().exists()) {
+				invalid("Output directory: \"" + outputPDF.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.answerPDF == null) {
+			if (requireOutputs) {
+				invalid("Missing --output-answer option");
+			}
+		} else {
+			answerPDF = resolve(parser.answerPDF);
+			if (!answerPDF.getParentFile().exists()) {
+				invalid("Answer output directory: \"" + answerPDF.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.outputPNG != null) {
+			outputPNG = resolve(parser.outputPNG);
+			if (!outputPNG.getParentFile().exists()) {
+				invalid("PNG output directory: \"" + outputPNG.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.pngScale == null) {
+			pngScale = Defaults.PNG_SCALE;
+		} else {
+			try {
+				pngScale = Float.parseFloat(parser.pngScale);
+			} catch (NumberFormatException e) {
+				invalid("PNG scale: " + parser.pngScale + " is not a valid number.");
+			}
+		}
+		if (!(pngScale > 0)) {
+			invalid("PNG scale must be greater than 0.");
+		}
+
+		if (parser.outputSVG != null) {
+			outputSVG = resolve(parser.outputSVG);
+			if (!outputSVG.getParentFile().exists()) {
+				invalid("SVG output directory: \"" + outputSVG.getParent() + "\" does not exist.");
+			}
+		}
+
+		poster = parser.poster;
+
+		if (parser.posterOverlap == null) {
+			posterOverlap = Defaults.POSTER_OVERLAP;
+		} else {
+			try {
+				posterOverlap = Float.parseFloat(parser.posterOverlap);
+			} catch (NumberFormatException e) {
+				invalid("Poster overlap: " + parser.posterOverlap + " is not a valid number.");
+			}
+		}
+		if (!(posterOverlap >= 0 && posterOverlap < 200)) {
+			invalid("Poster overlap must be at least 0 and less than 200.");
+		}
+
+		if (parser.outputMazeFile != null) {
+			outputMazeFile = resolve(parser.outputMazeFile);
+			if (!outputMazeFile.getParentFile().exists()) {
+				invalid("Maze file output directory: \"" + outputMazeFile.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.outputStats != null) {
+			outputStats = resolve(parser.outputStats);
+			if (!outputStats.getParentFile().exists()) {
+				invalid("Stats output directory: \"" + outputStats.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.outputProfile != null) {
+			outputProfile = resolve(parser.outputProfile);
+			if (!outputProfile.getParentFile().exists()) {
+				invalid("Profile output directory: \"" + outputProfile.getParent() + "\" does not exist.");
+			}
+		}
+	}
+
+	private void parseRenderArguments(Parser parser) {
+		renderMazeFile = resolve(parser.renderMazeFile);
+		if (!renderMazeFile.exists()) {
+			invalid("Maze file: \"" + renderMazeFile + "\" does not exist.");
+		}
+
+		parseOutputArguments(parser, false);
+		if (outputPDF == null && answerPDF == null && outputPNG == null && outputSVG == null && outputStats == null) {
+			invalid("Rendering a maze file needs at least one of the --output, --output-answer, --output-png, " +
+					"--output-svg or --output-stats options.");
+		}
+	}
+
+	private void parseCache(Parser parser) {
+		if (parser.cacheDirectory == null) {
+			if (parser.cacheSize != null || parser.cachePDFs) {
+				invalid("--cache-size and --cache-pdfs require the --cache-dir option.");
+			}
+			return;
+		}
+		cacheDirectory = resolve(parser.cacheDirectory);
+		if (!cacheDirectory.getParentFile().exists()) {
+			invalid("Cache parent directory: \"" + cacheDirectory.getParent() + "\" does not exist.");
+		}
+
+		long cacheMegabytes = Defaults.CACHE_SIZE;
+		if (parser.cacheSize != null) {
+			try {
+				cacheMegabytes = Long.parseLong(parser.cacheSize);
+			} catch (NumberFormatException e) {
+				invalid("Cache size: " + parser.cacheSize + " is not a valid integer.");
+			}
+		}
+		if (cacheMegabytes < 1) {
+			invalid("Cache size must be at least 1 megabyte.");
+		}
+		cacheSize = cacheMegabytes * 1024 * 1024;
+
+		cachePDFs = parser.cachePDFs;
+	}
+
+	private void parseChunkLength(Parser parser) {
+		if (parser.chunkLength == null) {
+			return;
+		}
+		try {
+			chunkLength = Integer.parseInt(parser.chunkLength);
+		} catch (NumberFormatException e) {
+			invalid("Chunk length: " + parser.chunkLength + " is not a valid integer.");
+		}
+		if (chunkLength < 1) {
+			invalid("Chunk length must be at least 1.");
+		}
+		if (chunkLength > mazeWidth * mazeHeight) {
+			invalid("Chunk length must be at most maze-width * maze-height, a longer path can't fit in the maze.");
+		}
+
+		// the chunks only end up in the two pdfs, the other outputs and modes are about a single maze
+		if (outputPNG != null || outputSVG != null || outputMazeFile != null || outputStats != null ||
+				outputProfile != null || incrementalMazeFile != null || watch || cacheDirectory != null) {
+			invalid("--chunk-length can't be used with the --output-png, --output-svg, --save-maze, " +
+					"--output-stats, --output-profile, --incremental, --watch or --cache-dir options.");
+		}
+	}
+
+	private void parseSeed(Parser parser) {
+		if (parser.seed != null) {
+			try {
+				seed = Long.parseLong(parser.seed);
+			} catch (NumberFormatException e) {
+				invalid("Seed: " + parser.seed + " is not a valid integer.");
+			}
+		}
+	}
+
+	private void parseBatchArguments(Parser parser) {
+		batchManifest = resolve(parser.batchManifest);
+		if (!batchManifest.exists()) {
+			invalid("Batch manifest: \"" + batchManifest + "\" does not exist.");
+		}
+
+		parseSeed(parser);
+		parseCache(parser);
+
+		if (parser.spoolDirectory != null) {
+			// a spooled batch is only submitted here, the workers draining the spool do the rest
+			spoolDirectory = resolve(parser.spoolDirectory);
+			if (parser.workbookPDF != null) {
+				invalid("--workbook can't be used with --spool, each puzzle may be made by a different worker.");
+			}
+		}
+
+		String stageThreadsString = parser.stageThreads == null ? Defaults.STAGE_THREADS : parser.stageThreads;
+		String[] stageThreadStrings = stageThreadsString.split(",");
+		if (stageThreadStrings.length != PuzzlePipeline.STAGE_COUNT) {
+			invalid("Stage threads must list " + PuzzlePipeline.STAGE_COUNT + " comma-separated counts.");
+		}
+		stageThreads = new int[PuzzlePipeline.STAGE_COUNT];
+		for (int i = 0; i < PuzzlePipeline.STAGE_COUNT; i++) {
+			try {
+				stageThreads[i] = Integer.parseInt(stageThreadStrings[i].trim());
+			} catch (NumberFormatException e) {
+				invalid("Stage threads: " + stageThreadStrings[i] + " is not a valid integer.");
+			}
+			if (stageThreads[i] < 0) {
+				invalid("Stage threads must not be negative.");
+			}
+			if (stageThreads[i] == 0) {
+				stageThreads[i] = Runtime.getRuntime().availableProcessors();
+			}
+		}
+
+		if (parser.batchQueueSize == null) {
+			batchQueueSize = Defaults.BATCH_QUEUE_SIZE;
+		} else {
+			try {
+				batchQueueSize = Integer.parseInt(parser.batchQueueSize);
+			} catch (NumberFormatException e) {
+				invalid("Batch queue size: " + parser.batchQueueSize + " is not a valid integer.");
+			}
+		}
+		if (batchQueueSize < 1) {
+			invalid("Batch queue size must be at least 1.");
+		}
+
+		if (parser.workbookPDF != null) {
+			workbookPDF = resolve(parser.workbookPDF);
+			if (!workbookPDF.getParentFile().exists()) {
+				invalid("Workbook directory: \"" + workbookPDF.getParent() + "\" does not exist.");
+			}
+		}
+
+		if (parser.workbookAnswerPDF != null) {
+			if (workbookPDF == null) {
+				invalid("--workbook-answers requires the --workbook option.");
+			}
+			workbookAnswerPDF = resolve(parser.workbookAnswerPDF);
+			if (!workbookAnswerPDF.getParentFile().exists()) {
+				invalid("Workbook answer directory: \"" + workbookAnswerPDF.getParent() + "\" does not exist.");
+			}
+		}
+	}
+
+	private void parseSpoolArguments(Parser parser) {
+		spoolDirectory = resolve(parser.spoolDirectory);
+		if (!spoolDirectory.exists()) {
+			invalid("Spool directory: \"" + spoolDirectory + "\" does not exist.");
+		}
+
+		if (parser.spoolLease == null) {
+			spoolLease = Defaults.SPOOL_LEASE;
+		} else {
+			try {
+				spoolLease = Long.parseLong(parser.spoolLease);
+			} catch (NumberFormatException e) {
+				invalid("Spool lease: " + parser.spoolLease + " is not a valid integer.");
+			}
+		}
+		if (spoolLease < 1) {
+			invalid("Spool lease must be at least 1 second.");
+		}
+
+		parseCache(parser);
+	}
+
+	private void parseServerArguments(Parser parser) {
+		try {
+			serverPort = Integer.parseInt(parser.serverPort);
+		} catch (NumberFormatException e) {
+			invalid("Server port: " + parser.serverPort + " is not a valid integer.");
+		}
+		if (serverPort < 0 || serverPort > 65535) {
+			invalid("Server port must be between 0 and 65535.");
+		}
+
+		if (parser.serverThreads == null) {
+			serverThreads = Defaults.SERVER_THREADS;
+		} else {
+			try {
+				serverThreads = Integer.parseInt(parser.serverThreads);
+			} catch (NumberFormatException e) {
+				invalid("Server threads: " + parser.serverThreads + " is not a valid integer.");
+			}
+		}
+		if (serverThreads < 0) {
+			invalid("Server threads must not be negative.");
+		}
+		if (serverThreads == 0) {
+			serverThreads = Runtime.getRuntime().availableProcessors();
+		}
+
+		if (parser.poolFile != null) {
+			poolFile = resolve(parser.poolFile);
+			if (!poolFile.exists()) {
+				invalid("Pool file: \"" + poolFile + "\" does not exist.");
+			}
+		}
+
+		if (parser.poolDepth == null) {
+			poolDepth = Defaults.POOL_DEPTH;
+		} else {
+			try {
+				poolDepth = Integer.parseInt(parser.poolDepth);
+			} catch (NumberFormatException e) {
+				invalid("Pool depth: " + parser.poolDepth + " is not a valid integer.");
+			}
 		}
+		if (poolDepth < 1) {
+			invalid("Pool depth must be at least 1.");
+		}
+
+		parseCache(parser);
 	}
 
-	private void printHelpAndExit(int status) {
-		System.err.println(HELP_TEXT);
-		System.exit(status);
+	private File resolve(String path) {
+		File file = new File(path);
+		if (baseDirectory != null && !file.isAbsolute()) {
+			file = new File(baseDirectory, path);
+		}
+		return file.getAbsoluteFile();
+	}
+
+	private void invalid(String message) {
+		// nothing in here exits, whoever is parsing decides whether a bad argument ends the process
+		throw new InvalidArgumentsException(message);
 	}
 
 	private class Parser {
 		String outputPDF;
 		String answerPDF;
 		String inputCSV;
+		String inputCharset;
 		String mazeWidth;
 		String mazeHeight;
 		String boxWidth;
@@ -270,13 +771,49 @@ public class WordMazeGeneratorArguments {
 		String endPosition;
 		String alphabet;
 		String barrierRemovals;
-		boolean error;
+		String outputPNG;
+		String pngScale;
+		String outputSVG;
+		boolean poster;
+		String posterOverlap;
+		String batchManifest;
+		String stageThreads;
+		String batchQueueSize;
+		String workbookPDF;
+		String workbookAnswerPDF;
+		String serverPort;
+		String serverThreads;
+		String seed;
+		String cacheDirectory;
+		String cacheSize;
+		boolean cachePDFs;
+		boolean watch;
+		String outputMazeFile;
+		String outputStats;
+		String outputProfile;
+		String incrementalMazeFile;
+		String renderMazeFile;
+		String poolFile;
+		String poolDepth;
+		String spoolDirectory;
+		String spoolLease;
+		String chunkLength;
+		boolean help;
+		final List<String> errors = Lists.newArrayList();
 
 		void parse(String[] args) {
 			boolean parsingOutputPDF = false, parsingAnswerPDF = false, parsingInputCSV = false, parsingMazeWidth =
 					false, parsingMazeHeight = false, parsingBoxWidth = false, parsingBoxHeight = false,
 					parsingStartPostioin = false, parsingEndPosition = false, parsingAlphabet = false,
-					parsingBarrierRemovals = false;
+					parsingBarrierRemovals = false, parsingOutputPNG = false, parsingPngScale = false,
+					parsingOutputSVG = false, parsingPosterOverlap = false,
+					parsingInputCharset = false, parsingBatchManifest = false, parsingStageThreads = false,
+					parsingBatchQueueSize = false, parsingWorkbookPDF = false, parsingWorkbookAnswerPDF = false,
+					parsingServerPort = false, parsingServerThreads = false, parsingSeed = false,
+					parsingCacheDirectory = false, parsingCacheSize = false, parsingOutputMazeFile = false,
+					parsingRenderMazeFile = false, parsingPoolFile = false, parsingPoolDepth = false,
+					parsingSpoolDirectory = false, parsingSpoolLease = false, parsingChunkLength = false,
+					parsingOutputStats = false, parsingOutputProfile = false, parsingIncrementalMazeFile = false;
 			for (String arg : args) {
 				if (parsingOutputPDF) {
 					outputPDF = arg;
@@ -311,6 +848,81 @@ public class WordMazeGeneratorArguments {
 				} else if (parsingBarrierRemovals) {
 					barrierRemovals = arg;
 					parsingBarrierRemovals = false;
+				} else if (parsingOutputPNG) {
+					outputPNG = arg;
+					parsingOutputPNG = false;
+				} else if (parsingPngScale) {
+					pngScale = arg;
+					parsingPngScale = false;
+				} else if (parsingOutputSVG) {
+					outputSVG = arg;
+					parsingOutputSVG = false;
+				} else if (parsingPosterOverlap) {
+					posterOverlap = arg;
+					parsingPosterOverlap = false;
+				} else if (parsingInputCharset) {
+					inputCharset = arg;
+					parsingInputCharset = false;
+				} else if (parsingBatchManifest) {
+					batchManifest = arg;
+					parsingBatchManifest = false;
+				} else if (parsingStageThreads) {
+					stageThreads = arg;
+					parsingStageThreads = false;
+				} else if (parsingBatchQueueSize) {
+					batchQueueSize = arg;
+					parsingBatchQueueSize = false;
+				} else if (parsingWorkbookPDF) {
+					workbookPDF = arg;
+					parsingWorkbookPDF = false;
+				} else if (parsingWorkbookAnswerPDF) {
+					workbookAnswerPDF = arg;
+					parsingWorkbookAnswerPDF = false;
+				} else if (parsingServerPort) {
+					serverPort = arg;
+					parsingServerPort = false;
+				} else if (parsingServerThreads) {
+					serverThreads = arg;
+					parsingServerThreads = false;
+				} else if (parsingSeed) {
+					seed = arg;
+					parsingSeed = false;
+				} else if (parsingCacheDirectory) {
+					cacheDirectory = arg;
+					parsingCacheDirectory = false;
+				} else if (parsingCacheSize) {
+					cacheSize = arg;
+					parsingCacheSize = false;
+				} else if (parsingOutputMazeFile) {
+					outputMazeFile = arg;
+					parsingOutputMazeFile = false;
+				} else if (parsingRenderMazeFile) {
+					renderMazeFile = arg;
+					parsingRenderMazeFile = false;
+				} else if (parsingPoolFile) {
+					poolFile = arg;
+					parsingPoolFile = false;
+				} else if (parsingPoolDepth) {
+					poolDepth = arg;
+					parsingPoolDepth = false;
+				} else if (parsingSpoolDirectory) {
+					spoolDirectory = arg;
+					parsingSpoolDirectory = false;
+				} else if (parsingSpoolLease) {
+					spoolLease = arg;
+					parsingSpoolLease = false;
+				} else if (parsingChunkLength) {
+					chunkLength = arg;
+					parsingChunkLength = false;
+				} else if (parsingOutputStats) {
+					outputStats = arg;
+					parsingOutputStats = false;
+				} else if (parsingOutputProfile) {
+					outputProfile = arg;
+					parsingOutputProfile = false;
+				} else if (parsingIncrementalMazeFile) {
+					incrementalMazeFile = arg;
+					parsingIncrementalMazeFile = false;
 				} else {
 					if (arg.startsWith("-")) {
 						if (arg.startsWith("--")) {
@@ -318,12 +930,12 @@ public class WordMazeGeneratorArguments {
 							if (arg.contains("=")) {
 								int equalsIndex = arg.indexOf('=');
 								argValue = arg.substring(equalsIndex + 1);
-								arg = arg.substring(equalsIndex);
+								arg = arg.substring(0, equalsIndex);
 							}
 
 							switch (arg) {
 								case "--help":
-									printHelpAndExit(0);
+									help = true;
 									break;
 								case "--output":
 									if (argValue == null) {
@@ -346,6 +958,13 @@ public class WordMazeGeneratorArguments {
 										inputCSV = argValue;
 									}
 									break;
+								case "--input-charset":
+									if (argValue == null) {
+										parsingInputCharset = true;
+									} else {
+										inputCharset = argValue;
+									}
+									break;
 								case "--width":
 									if (argValue == null) {
 										parsingMazeWidth = true;
@@ -402,9 +1021,185 @@ public class WordMazeGeneratorArguments {
 										barrierRemovals = argValue;
 									}
 									break;
+								case "--output-png":
+									if (argValue == null) {
+										parsingOutputPNG = true;
+									} else {
+										outputPNG = argValue;
+									}
+									break;
+								case "--png-scale":
+									if (argValue == null) {
+										parsingPngScale = true;
+									} else {
+										pngScale = argValue;
+									}
+									break;
+								case "--output-svg":
+									if (argValue == null) {
+										parsingOutputSVG = true;
+									} else {
+										outputSVG = argValue;
+									}
+									break;
+								case "--poster":
+									poster = true;
+									break;
+								case "--batch":
+									if (argValue == null) {
+										parsingBatchManifest = true;
+									} else {
+										batchManifest = argValue;
+									}
+									break;
+								case "--stage-threads":
+									if (argValue == null) {
+										parsingStageThreads = true;
+									} else {
+										stageThreads = argValue;
+									}
+									break;
+								case "--batch-queue-size":
+									if (argValue == null) {
+										parsingBatchQueueSize = true;
+									} else {
+										batchQueueSize = argValue;
+									}
+									break;
+								case "--workbook":
+									if (argValue == null) {
+										parsingWorkbookPDF = true;
+									} else {
+										workbookPDF = argValue;
+									}
+									break;
+								case "--workbook-answers":
+									if (argValue == null) {
+										parsingWorkbookAnswerPDF = true;
+									} else {
+										workbookAnswerPDF = argValue;
+									}
+									break;
+								case "--serve":
+									if (argValue == null) {
+										parsingServerPort = true;
+									} else {
+										serverPort = argValue;
+									}
+									break;
+								case "--server-threads":
+									if (argValue == null) {
+										parsingServerThreads = true;
+									} else {
+										serverThreads = argValue;
+									}
+									break;
+								case "--save-maze":
+									if (argValue == null) {
+										parsingOutputMazeFile = true;
+									} else {
+										outputMazeFile = argValue;
+									}
+									break;
+								case "--output-stats":
+									if (argValue == null) {
+										parsingOutputStats = true;
+									} else {
+										outputStats = argValue;
+									}
+									break;
+								case "--output-profile":
+									if (argValue == null) {
+										parsingOutputProfile = true;
+									} else {
+										outputProfile = argValue;
+									}
+									break;
+								case "--incremental":
+									if (argValue == null) {
+										parsingIncrementalMazeFile = true;
+									} else {
+										incrementalMazeFile = argValue;
+									}
+									break;
+								case "--render":
+									if (argValue == null) {
+										parsingRenderMazeFile = true;
+									} else {
+										renderMazeFile = argValue;
+									}
+									break;
+								case "--pool":
+									if (argValue == null) {
+										parsingPoolFile = true;
+									} else {
+										poolFile = argValue;
+									}
+									break;
+								case "--pool-depth":
+									if (argValue == null) {
+										parsingPoolDepth = true;
+									} else {
+										poolDepth = argValue;
+									}
+									break;
+								case "--spool":
+									if (argValue == null) {
+										parsingSpoolDirectory = true;
+									} else {
+										spoolDirectory = argValue;
+									}
+									break;
+								case "--spool-lease":
+									if (argValue == null) {
+										parsingSpoolLease = true;
+									} else {
+										spoolLease = argValue;
+									}
+									break;
+								case "--chunk-length":
+									if (argValue == null) {
+										parsingChunkLength = true;
+									} else {
+										chunkLength = argValue;
+									}
+									break;
+								case "--cache-dir":
+									if (argValue == null) {
+										parsingCacheDirectory = true;
+									} else {
+										cacheDirectory = argValue;
+									}
+									break;
+								case "--cache-size":
+									if (argValue == null) {
+										parsingCacheSize = true;
+									} else {
+										cacheSize = argValue;
+									}
+									break;
+								case "--cache-pdfs":
+									cachePDFs = true;
+									break;
+								case "--watch":
+									watch = true;
+									break;
+								case "--seed":
+									if (argValue == null) {
+										parsingSeed = true;
+									} else {
+										seed = argValue;
+									}
+									break;
+								case "--poster-overlap":
+									if (argValue == null) {
+										parsingPosterOverlap = true;
+									} else {
+										posterOverlap = argValue;
+									}
+									break;
 								default:
-									System.err.println("Unknown option: '" + arg + '\'');
-									error = true;
+									errors.add("Unknown option: '" + arg + '\'');
 									break;
 							}
 						} else {
@@ -485,16 +1280,22 @@ public class WordMazeGeneratorArguments {
 											arg = "";
 										}
 										break;
+									case 'p':
+										if (arg.isEmpty()) {
+											parsingOutputPNG = true;
+										} else {
+											outputPNG = arg;
+											arg = "";
+										}
+										break;
 									default:
-										System.err.println("Unknown short option: '-" + option + '\'');
-										error = true;
+										errors.add("Unknown short option: '-" + option + '\'');
 										break;
 								}
 							}
 						}
 					} else {
-						System.err.println("Unknown option value: '" + arg + '\'');
-						error = true;
+						errors.add("Unknown option value: '" + arg + '\'');
 					}
 				}
 			}
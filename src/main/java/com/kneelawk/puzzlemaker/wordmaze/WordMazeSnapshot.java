@@ -0,0 +1,158 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.awt.*;
+import java.util.Arrays;
+
+public class WordMazeSnapshot {
+	private final int width;
+	private final int height;
+	private final int boxWidth;
+	private final int boxHeight;
+	private final boolean[][] verticals;
+	private final boolean[][] horizontals;
+	private final char[][] letters;
+	private final char extraLetter;
+	private final Vec2i extraLetterLocation;
+
+	WordMazeSnapshot(int width, int height, int boxWidth, int boxHeight, boolean[][] verticals,
+					 boolean[][] horizontals, char[][] letters, char extraLetter, Vec2i extraLetterLocation) {
+		this.width = width;
+		this.height = height;
+		this.boxWidth = boxWidth;
+		this.boxHeight = boxHeight;
+		// a reused maze's arrays can be larger than the maze, only the part it uses is copied
+		this.verticals = copy(verticals, height, width + 1);
+		this.horizontals = copy(horizontals, height + 1, width);
+		this.letters = copy(letters, height, width);
+		this.extraLetter = extraLetter;
+		this.extraLetterLocation = extraLetterLocation;
+	}
+
+	private WordMazeSnapshot(WordMazeSnapshot walls, char[][] letters) {
+		width = walls.width;
+		height = walls.height;
+		boxWidth = walls.boxWidth;
+		boxHeight = walls.boxHeight;
+		verticals = walls.verticals;
+		horizontals = walls.horizontals;
+		this.letters = letters;
+		extraLetter = walls.extraLetter;
+		extraLetterLocation = walls.extraLetterLocation;
+	}
+
+	public WordMazeSnapshot withLettersOnlyAt(Iterable<Vec2i> cells) {
+		// the walls never change, so the new snapshot shares them instead of copying
+		char[][] onlyLetters = new char[height][width];
+		for (Vec2i loc : cells) {
+			onlyLetters[loc.y][loc.x] = letters[loc.y][loc.x];
+		}
+		return new WordMazeSnapshot(this, onlyLetters);
+	}
+
+	private static boolean[][] copy(boolean[][] array, int rows, int columns) {
+		boolean[][] copy = new boolean[rows][];
+		for (int i = 0; i < rows; i++) {
+			copy[i] = Arrays.copyOf(array[i], columns);
+		}
+		return copy;
+	}
+
+	private static char[][] copy(char[][] array, int rows, int columns) {
+		char[][] copy = new char[rows][];
+		for (int i = 0; i < rows; i++) {
+			copy[i] = Arrays.copyOf(array[i], columns);
+		}
+		return copy;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getBoxWidth() {
+		return boxWidth;
+	}
+
+	public int getBoxHeight() {
+		return boxHeight;
+	}
+
+	public boolean getHorizontal(int x, int y) {
+		return horizontals[y][x];
+	}
+
+	public boolean getVertical(int x, int y) {
+		return verticals[y][x];
+	}
+
+	public char getCharacter(int x, int y) {
+		return letters[y][x];
+	}
+
+	public char getExtraLetter() {
+		return extraLetter;
+	}
+
+	public Vec2i getExtraLetterLocation() {
+		return extraLetterLocation;
+	}
+
+	public void draw(Graphics2D graphics2D) {
+		drawWalls(graphics2D);
+		drawLetters(graphics2D);
+	}
+
+	public void drawWalls(Graphics2D graphics2D) {
+		drawWalls(graphics2D, 0, 0, width, height);
+	}
+
+	public void drawLetters(Graphics2D graphics2D) {
+		drawLetters(graphics2D, -1, -1, width, height);
+	}
+
+	public void drawWalls(Graphics2D graphics2D, int minX, int minY, int maxX, int maxY) {
+		graphics2D.setStroke(new BasicStroke(2));
+		graphics2D.setColor(Color.BLACK);
+		int startX = Math.max(minX, 0), startY = Math.max(minY, 0);
+		for (int y = startY; y <= Math.min(maxY, height - 1); y++) {
+			for (int x = startX; x <= Math.min(maxX, width); x++) {
+				if (verticals[y][x]) {
+					graphics2D.drawLine(x * boxWidth, y * boxHeight, x * boxWidth, y * boxHeight + boxHeight);
+				}
+			}
+		}
+		for (int y = startY; y <= Math.min(maxY, height); y++) {
+			for (int x = startX; x <= Math.min(maxX, width - 1); x++) {
+				if (horizontals[y][x]) {
+					graphics2D.drawLine(x * boxWidth, y * boxHeight, x * boxWidth + boxWidth, y * boxHeight);
+				}
+			}
+		}
+	}
+
+	public void drawLetters(Graphics2D graphics2D, int minX, int minY, int maxX, int maxY) {
+		graphics2D.setColor(Color.BLACK);
+		FontMetrics metrics = graphics2D.getFontMetrics();
+		for (int y = Math.max(minY, 0); y <= Math.min(maxY, height - 1); y++) {
+			for (int x = Math.max(minX, 0); x <= Math.min(maxX, width - 1); x++) {
+				if (letters[y][x] != 0) {
+					graphics2D.drawChars(letters[y], x, 1,
+							x * boxWidth + (boxWidth - metrics.charWidth(letters[y][x])) / 2,
+							y * boxHeight + (boxHeight - metrics.getHeight()) / 2 + metrics.getAscent());
+				}
+			}
+		}
+		if (extraLetter != 0) {
+			Vec2i loc = extraLetterLocation;
+			if (loc.x >= minX && loc.x <= maxX && loc.y >= minY && loc.y <= maxY) {
+				graphics2D.drawChars(new char[]{extraLetter}, 0, 1,
+						loc.x * boxWidth + (boxWidth - metrics.charWidth(extraLetter)) / 2,
+						loc.y * boxHeight + (boxHeight - metrics.getHeight()) / 2 + metrics.getAscent());
+			}
+		}
+	}
+}
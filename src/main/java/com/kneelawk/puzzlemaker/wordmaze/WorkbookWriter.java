@@ -0,0 +1,117 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Maps;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public class WorkbookWriter implements Closeable {
+	private final File puzzleOutput;
+	private final File answerOutput;
+	private final PDDocument puzzleBook;
+	private final PDDocument answerBook;
+	private final GlyphWidthCache puzzleGlyphs;
+	private final GlyphWidthCache answerGlyphs;
+	private final Map<Integer, Entry> pending = Maps.newHashMap();
+	private int nextIndex = 0;
+	private int puzzleCount = 0;
+
+	public WorkbookWriter(File puzzleOutput, File answerOutput) throws IOException {
+		this.puzzleOutput = puzzleOutput;
+		this.answerOutput = answerOutput;
+
+		// page content goes to a scratch file instead of the heap, and each book embeds its font only once
+		puzzleBook = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+		puzzleGlyphs = new GlyphWidthCache(MazeFonts.loadTextFont(puzzleBook));
+		if (answerOutput != null) {
+			answerBook = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+			answerGlyphs = new GlyphWidthCache(MazeFonts.loadTextFont(answerBook));
+		} else {
+			answerBook = null;
+			answerGlyphs = null;
+		}
+	}
+
+	public synchronized void add(int index, PuzzleJob job, Consumer<Throwable> bound) {
+		// puzzles can finish out of order, but they are bound in the order they were listed, and each one hears
+		// about its own binding, whichever puzzle's add it happens in
+		pending.put(index, new Entry(job, bound));
+		while (pending.containsKey(nextIndex)) {
+			Entry next = pending.remove(nextIndex);
+			nextIndex++;
+			Throwable failure = null;
+			if (next.job != null) {
+				// a puzzle that fails part way takes its pages back out, so the two books stay in step
+				int puzzlePages = puzzleBook.getNumberOfPages();
+				int answerPages = answerBook != null ? answerBook.getNumberOfPages() : 0;
+				try {
+					next.job.appendPuzzle(puzzleBook, puzzleGlyphs);
+					if (answerBook != null) {
+						next.job.appendAnswer(answerBook, answerGlyphs);
+					}
+					puzzleCount++;
+				} catch (Throwable e) {
+					failure = e;
+					removePagesFrom(puzzleBook, puzzlePages);
+					if (answerBook != null) {
+						removePagesFrom(answerBook, answerPages);
+					}
+				}
+			}
+			next.bound.accept(failure);
+		}
+		notifyAll();
+	}
+
+	private static void removePagesFrom(PDDocument book, int pageCount) {
+		while (book.getNumberOfPages() > pageCount) {
+			book.removePage(book.getNumberOfPages() - 1);
+		}
+	}
+
+	public void skip(int index, Consumer<Throwable> bound) {
+		add(index, null, bound);
+	}
+
+	public synchronized void awaitTurn(int index, int window) throws InterruptedException {
+		// puzzles waiting to be bound keep their whole maze, so a puzzle only starts once it is within a window
+		// of the next one to bind
+		while (index - nextIndex >= window) {
+			wait();
+		}
+	}
+
+	public synchronized int getPuzzleCount() {
+		return puzzleCount;
+	}
+
+	public synchronized void save() throws IOException {
+		puzzleBook.save(puzzleOutput);
+		if (answerBook != null) {
+			answerBook.save(answerOutput);
+		}
+	}
+
+	private static class Entry {
+		final PuzzleJob job;
+		final Consumer<Throwable> bound;
+
+		Entry(PuzzleJob job, Consumer<Throwable> bound) {
+			this.job = job;
+			this.bound = bound;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		puzzleBook.close();
+		if (answerBook != null) {
+			answerBook.close();
+		}
+	}
+}
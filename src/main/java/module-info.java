@@ -2,9 +2,10 @@ module com.kneelawk.puzzlemaker {
     exports com.kneelawk.puzzlemaker.wordmaze;
 
     requires java.desktop;
+    requires jdk.httpserver;
+    requires jdk.jfr;
     requires com.google.common;
     requires org.apache.commons.io;
-    requires org.apache.commons.configuration2;
     requires commons.csv;
     requires pdfbox;
     requires graphics2d;
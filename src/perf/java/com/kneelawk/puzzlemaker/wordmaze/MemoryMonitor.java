@@ -0,0 +1,88 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+
+public class MemoryMonitor implements NotificationListener, AutoCloseable {
+	private long allocatedBeforeGCs;
+	private long peakHeap;
+	private final long startYoung;
+
+	public MemoryMonitor() {
+		startYoung = youngUsed();
+		peakHeap = heapUsed();
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).addNotificationListener(this, null, null);
+		}
+	}
+
+	@Override
+	public synchronized void handleNotification(Notification notification, Object handback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			return;
+		}
+		GarbageCollectionNotificationInfo info =
+				GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+
+		// the heap is at its fullest right before a collection, and everything allocated since the last one
+		// is still in the young pools at that point
+		Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+		Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+		long heapBefore = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP || !before.containsKey(pool.getName())) {
+				continue;
+			}
+			heapBefore += before.get(pool.getName()).getUsed();
+			if (isYoung(pool)) {
+				allocatedBeforeGCs += before.get(pool.getName()).getUsed() - after.get(pool.getName()).getUsed();
+			}
+		}
+		peakHeap = Math.max(peakHeap, heapBefore);
+	}
+
+	public synchronized long getAllocatedBytes() {
+		return allocatedBeforeGCs + youngUsed() - startYoung;
+	}
+
+	public synchronized long getPeakHeap() {
+		return Math.max(peakHeap, heapUsed());
+	}
+
+	@Override
+	public void close() throws ListenerNotFoundException {
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).removeNotificationListener(this);
+		}
+	}
+
+	private static boolean isYoung(MemoryPoolMXBean pool) {
+		String name = pool.getName();
+		return name.contains("Eden") || name.contains("Survivor") || name.contains("Nursery");
+	}
+
+	private static long youngUsed() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && isYoung(pool)) {
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+
+	private static long heapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
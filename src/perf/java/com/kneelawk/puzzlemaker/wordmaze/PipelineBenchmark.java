@@ -0,0 +1,187 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+public class PipelineBenchmark {
+	private static final String CASES_FILE = "cases.txt";
+	private static final String THRESHOLDS_FILE = "thresholds.properties";
+	private static final String BASELINE_SUFFIX = ".properties";
+	private static final int DEFAULT_RUNS = 3;
+
+	// a fixed heap and collector keep the memory numbers comparable between machines and runs
+	private static final List<String> JVM_OPTIONS = Arrays.asList("-Xms256m", "-Xmx2g", "-XX:+UseSerialGC");
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: PipelineBenchmark <corpus-dir> <baseline-dir> <report-dir> " +
+					"[--update-baselines] [--runs <runs>] [--case <case-name>]");
+			System.exit(-1);
+		}
+		Path corpus = Paths.get(args[0]).toAbsolutePath();
+		Path baselines = Paths.get(args[1]).toAbsolutePath();
+		Path reports = Paths.get(args[2]).toAbsolutePath();
+		boolean updateBaselines = false;
+		int runs = DEFAULT_RUNS;
+		String onlyCase = null;
+		for (int i = 3; i < args.length; i++) {
+			switch (args[i]) {
+				case "--update-baselines":
+					updateBaselines = true;
+					break;
+				case "--runs":
+					runs = Integer.parseInt(args[++i]);
+					break;
+				case "--case":
+					onlyCase = args[++i];
+					break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(-1);
+			}
+		}
+
+		List<String[]> cases;
+		Properties thresholds;
+		try {
+			cases = BatchManifest.read(corpus.resolve(CASES_FILE));
+			thresholds = readProperties(baselines.resolve(THRESHOLDS_FILE));
+			Files.createDirectories(reports);
+		} catch (IOException e) {
+			System.err.println("Unable to set up the benchmark: " + e.getMessage());
+			System.exit(-1);
+			return;
+		}
+
+		int regressions = 0;
+		for (String[] testCase : cases) {
+			String name = testCase[0];
+			if (onlyCase != null && !onlyCase.equals(name)) {
+				continue;
+			}
+
+			System.out.println("Running " + name + "...");
+			PipelineMetrics metrics;
+			try {
+				metrics = runCase(corpus, reports, name, Arrays.copyOfRange(testCase, 1, testCase.length), runs);
+				metrics.write(reports.resolve(name + BASELINE_SUFFIX));
+			} catch (IOException e) {
+				System.err.println("  " + name + " failed: " + e.getMessage());
+				regressions++;
+				continue;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			Path baselineFile = baselines.resolve(name + BASELINE_SUFFIX);
+			try {
+				if (updateBaselines) {
+					metrics.write(baselineFile);
+					print(metrics, null);
+				} else if (!Files.exists(baselineFile)) {
+					print(metrics, null);
+					System.out.println("  no baseline for " + name + ", run with --update-baselines to record one");
+				} else {
+					regressions += compare(name, metrics, PipelineMetrics.read(baselineFile), thresholds);
+				}
+			} catch (IOException e) {
+				System.err.println("  " + e.getMessage());
+				regressions++;
+			}
+		}
+
+		if (regressions > 0) {
+			System.err.println(regressions + " regression(s) against the baselines in " + baselines);
+			System.exit(1);
+		}
+	}
+
+	private static PipelineMetrics runCase(Path corpus, Path reports, String name, String[] options, int runs)
+			throws IOException, InterruptedException {
+		Path puzzle = reports.resolve(name + ".pdf");
+		Path answer = reports.resolve(name + "-answer.pdf");
+		Path metricsFile = reports.resolve(name + ".run");
+
+		List<String> command = Lists.newArrayList();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(JVM_OPTIONS);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PipelineRun.class.getName());
+		command.add(metricsFile.toString());
+		command.addAll(Arrays.asList(options));
+		command.addAll(Arrays.asList("-o", puzzle.toString(), "-O", answer.toString()));
+
+		// each run gets a fresh jvm so one case's heap and jit state can't leak into the next
+		List<PipelineMetrics> results = Lists.newArrayList();
+		for (int run = 0; run < runs; run++) {
+			Process process = new ProcessBuilder(command).directory(corpus.toFile())
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			int exitCode = process.waitFor();
+			if (exitCode != 0) {
+				throw new IOException("the generator exited with " + exitCode);
+			}
+			PipelineMetrics metrics = PipelineMetrics.read(metricsFile);
+			metrics.setPDFBytes(Files.size(puzzle) + Files.size(answer));
+			results.add(metrics);
+		}
+		Files.deleteIfExists(metricsFile);
+
+		// the median of each metric on its own, so a single slow run doesn't decide any of them
+		PipelineMetrics median = new PipelineMetrics();
+		for (String metric : PipelineMetrics.NAMES) {
+			long[] values = results.stream().mapToLong(m -> m.get(metric)).sorted().toArray();
+			median.set(metric, values[values.length / 2]);
+		}
+		return median;
+	}
+
+	private static int compare(String name, PipelineMetrics metrics, PipelineMetrics baseline,
+							   Properties thresholds) {
+		print(metrics, baseline);
+		int regressions = 0;
+		for (String metric : PipelineMetrics.NAMES) {
+			// a metric only regresses when it grows past both the ratio and the slack, so tiny cases aren't noise
+			long current = metrics.get(metric), previous = baseline.get(metric);
+			double ratio = Double.parseDouble(thresholds.getProperty(metric + ".ratio"));
+			long slack = Long.parseLong(thresholds.getProperty(metric + ".slack", "0"));
+			if (current > previous * (1 + ratio) && current - previous > slack) {
+				System.err.println("  " + name + ": " + metric + " regressed from " + previous + " to " + current +
+						" (allowed +" + Math.round(ratio * 100) + "%)");
+				regressions++;
+			}
+		}
+		return regressions;
+	}
+
+	private static void print(PipelineMetrics metrics, PipelineMetrics baseline) {
+		for (String metric : PipelineMetrics.NAMES) {
+			String line = String.format("  %-16s %14d", metric, metrics.get(metric));
+			if (baseline != null) {
+				long previous = baseline.get(metric);
+				line += String.format(" %14d %+7.1f%%", previous,
+						previous == 0 ? 0 : 100.0 * (metrics.get(metric) - previous) / previous);
+			}
+			System.out.println(line);
+		}
+	}
+
+	private static Properties readProperties(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			Properties props = new Properties();
+			props.load(reader);
+			return props;
+		}
+	}
+}
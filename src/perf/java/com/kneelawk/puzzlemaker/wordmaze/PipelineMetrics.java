@@ -0,0 +1,69 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public class PipelineMetrics {
+	public static final String WALL_MILLIS = "wallMillis";
+	public static final String PEAK_HEAP_BYTES = "peakHeapBytes";
+	public static final String ALLOCATED_BYTES = "allocatedBytes";
+	public static final String PDF_BYTES = "pdfBytes";
+	public static final String[] NAMES = {WALL_MILLIS, PEAK_HEAP_BYTES, ALLOCATED_BYTES, PDF_BYTES};
+
+	private final Properties props;
+
+	public PipelineMetrics() {
+		props = new Properties();
+	}
+
+	private PipelineMetrics(Properties props) {
+		this.props = props;
+	}
+
+	public static PipelineMetrics read(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			Properties props = new Properties();
+			props.load(reader);
+			return new PipelineMetrics(props);
+		}
+	}
+
+	public void write(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			props.store(writer, null);
+		}
+	}
+
+	public long get(String name) {
+		String value = props.getProperty(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing metric: " + name);
+		}
+		return Long.parseLong(value);
+	}
+
+	public void set(String name, long value) {
+		props.setProperty(name, Long.toString(value));
+	}
+
+	public void setWallMillis(long wallMillis) {
+		set(WALL_MILLIS, wallMillis);
+	}
+
+	public void setPeakHeapBytes(long peakHeapBytes) {
+		set(PEAK_HEAP_BYTES, peakHeapBytes);
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		set(ALLOCATED_BYTES, allocatedBytes);
+	}
+
+	public void setPDFBytes(long pdfBytes) {
+		set(PDF_BYTES, pdfBytes);
+	}
+}
@@ -0,0 +1,32 @@
+package com.kneelawk.puzzlemaker.wordmaze;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class PipelineRun {
+	public static void main(String[] args) {
+		Path metricsFile = Paths.get(args[0]);
+		String[] generatorArgs = Arrays.copyOfRange(args, 1, args.length);
+
+		MemoryMonitor monitor = new MemoryMonitor();
+		long start = System.nanoTime();
+
+		// the generator may end with System.exit or with its last worker thread, a shutdown hook sees both
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			PipelineMetrics metrics = new PipelineMetrics();
+			metrics.setWallMillis((System.nanoTime() - start) / 1000000);
+			metrics.setPeakHeapBytes(monitor.getPeakHeap());
+			metrics.setAllocatedBytes(monitor.getAllocatedBytes());
+			try {
+				metrics.write(metricsFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}));
+
+		WordMazeGenerator.main(generatorArgs);
+	}
+}